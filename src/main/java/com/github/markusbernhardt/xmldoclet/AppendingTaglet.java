@@ -0,0 +1,31 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import com.sun.javadoc.Tag;
+
+/**
+ * A taglet writing its output straight into the comment being rendered.
+ *
+ * <p>The {@link Parser} renders every comment into a buffer it reuses for the comments of the same thread, and
+ * copies the buffer once when the comment is complete. A taglet implementing this interface appends to that
+ * buffer instead of returning a string, so no intermediate string is created for its tag. Taglets implementing
+ * only {@link Taglet} keep working, their output is appended by the parser.
+ */
+public interface AppendingTaglet extends Taglet {
+
+  /**
+   * Renders an inline tag into the comment.
+   *
+   * <p>The taglet may render other comments while appending, for example the comment an {@inheritDoc} tag
+   * copies; these are rendered into buffers of their own.
+   *
+   * @param parser
+   *            The parser of the run
+   * @param tag
+   *            The inline tag
+   * @param parent
+   *            The block tag containing the inline tag, <code>null</code> for a tag of a main description
+   * @param comment
+   *            The comment rendered so far, to append the output to
+   */
+  public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment);
+}
@@ -4,11 +4,25 @@ import com.sun.javadoc.RootDoc;
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.Type;
 import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.ProgramElementDoc;
+import com.sun.javadoc.ExecutableMemberDoc;
+import com.sun.javadoc.TypeVariable;
+import com.sun.javadoc.WildcardType;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.TreeMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.LinkedHashSet;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Comparator;
@@ -17,48 +31,289 @@ public class ClassTree {
 
     /**
      * We want the list of types in alphabetical order.  However, types are not
-     * comparable.  We need a comparator for now.
+     * comparable.  We need a comparator for now. The lower case names are
+     * computed once per class and kept in sortKeys.
      */
-    private static class TypeComparator implements Comparator {
+    private class TypeComparator implements Comparator {
         public int compare(Object type1, Object type2) {
-            return ((Type) type1).qualifiedTypeName().toLowerCase().compareTo(
-                ((Type) type2).qualifiedTypeName().toLowerCase());
+            return sortKey((Type) type1).compareTo(sortKey((Type) type2));
         }
     }
 
+    /**
+     * Mapping for each class with the lower case qualified name it is
+     * sorted by.
+     */
+    private Map sortKeys = new HashMap();
+
+    /**
+     * Sort order of the types in the tree, shared by all sorts.
+     */
+    private final Comparator typeComparator = new TypeComparator();
+
     /**
      * List of baseclasses. Contains only java.lang.Object. Can be used to get
      * the mapped listing of sub-classes.
      */
-    private List baseclasses = new ArrayList();
+    private List baseclasses;
 
     /**
     * Mapping for each Class with their SubClasses
     */
-    private Map subclasses = new HashMap();
+    private Graph subclasses = new Graph(true);
 
     /**
      * List of base-interfaces. Contains list of all the interfaces who do not
      * have super-interfaces. Can be used to get the mapped listing of
      * sub-interfaces.
      */
-    private List baseinterfaces = new ArrayList();
+    private List baseinterfaces;
 
     /**
     * Mapping for each Interface with their SubInterfaces
     */
-    private Map subinterfaces = new HashMap();
+    private Graph subinterfaces = new Graph(true);
 
-    private List baseEnums = new ArrayList();
-    private Map subEnums = new HashMap();
+    private List baseEnums;
+    private Graph subEnums = new Graph(false);
 
-    private List baseAnnotationTypes = new ArrayList();
-    private Map subAnnotationTypes = new HashMap();
+    private List baseAnnotationTypes;
+    private Graph subAnnotationTypes = new Graph(false);
 
     /**
     * Mapping for each Interface with classes who implement it.
     */
-    private Map implementingclasses = new HashMap();
+    private Graph implementingclasses = new Graph(true);
+
+    /**
+     * The parts of the tree, each built on first use.
+     */
+    private static final int CLASSES = 0;
+    private static final int INTERFACES = 1;
+    private static final int ENUMS = 2;
+    private static final int ANNOTATION_TYPES = 3;
+    private static final int IMPLEMENTORS = 4;
+
+    /**
+     * The types looked up by qualified name for the index.
+     */
+    private Map named;
+
+    /**
+     * The parts of the tree built so far.
+     */
+    private BitSet built = new BitSet();
+
+    /**
+     * All the classes in this run.
+     */
+    private final ClassDoc[] classes;
+
+    /**
+     * Decides which of the included classes take part in the tree.
+     */
+    private final DocFilter filter;
+
+    /**
+     * Facts of the types read from a persisted index instead of the javadoc
+     * type graph, null to walk the type graph.
+     */
+    private HierarchyIndex index;
+
+    /**
+     * Dense ids of all types in the tree, including external super types.
+     * All mappings are stored as edges between these ids.
+     */
+    private Map ids = new HashMap();
+    private List docs = new ArrayList();
+
+    /**
+     * Position of each id in the natural order of the types. Types which
+     * compare as equal share a position.
+     */
+    private int[] ranks;
+
+    /**
+     * Transitive closures already set up, for each mapping of allSubs and
+     * for the implementing classes.
+     */
+    private Map subClosures = new IdentityHashMap();
+    private Closure implementingClosure;
+
+    /**
+     * Results of getAllInterfaces, for classes by ClassDoc and for
+     * parameterized types by their type key.
+     */
+    private Map rawInterfaces = new HashMap();
+    private Map parameterizedInterfaces = new HashMap();
+
+    /**
+     * Interfaces inherited from each super-class, by ClassDoc or type key.
+     * The second map of each pair holds the raw variants.
+     */
+    private Map[] rawInheritedInterfaces = { new HashMap(), new HashMap() };
+    private Map[] parameterizedInheritedInterfaces = { new HashMap(), new HashMap() };
+
+    /**
+     * Edges between type ids. While the tree is built they are appended to
+     * two parallel arrays, afterwards they are compressed to rows: the
+     * targets of id i are targets[offsets[i]] up to
+     * targets[offsets[i + 1] - 1]. Duplicate edges are dropped, the first
+     * one wins.
+     */
+    private static class Graph {
+
+        /**
+         * true if the rows are sorted, otherwise they keep the insertion
+         * order.
+         */
+        private final boolean sorted;
+
+        /**
+         * Types whose outgoing edges have been processed, used to stop the
+         * recursion while the tree is built.
+         */
+        private BitSet processed = new BitSet();
+
+        private int[] sources = new int[16];
+        private int[] destinations = new int[16];
+        private int size;
+
+        private int[] offsets = new int[1];
+        private int[] targets = new int[0];
+
+        Graph(boolean sorted) {
+            this.sorted = sorted;
+        }
+
+        /**
+         * Mark the type passed as processed.
+         *
+         * @returns boolean true if the type was not processed before.
+         */
+        boolean process(int id) {
+            if (processed.get(id)) {
+                return false;
+            }
+            processed.set(id);
+            return true;
+        }
+
+        void add(int source, int destination) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                destinations = Arrays.copyOf(destinations, size * 2);
+            }
+            sources[size] = source;
+            destinations[size] = destination;
+            size++;
+        }
+
+        /**
+         * Turn the edges added so far into rows.
+         *
+         * @param types the number of type ids.
+         * @param ranks the position of each id in the sort order.
+         */
+        void compress(int types, int[] ranks) {
+            offsets = new int[types + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int i = 0; i < types; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] next = Arrays.copyOf(offsets, types);
+            int[] row = new int[size];
+            for (int i = 0; i < size; i++) {
+                row[next[sources[i]]++] = destinations[i];
+            }
+
+            // drop duplicates while copying the rows, then sort them
+            int[] seen = new int[types];
+            Arrays.fill(seen, -1);
+            targets = new int[size];
+            int count = 0;
+            for (int i = 0; i < types; i++) {
+                int start = count;
+                for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                    if (seen[row[j]] != i) {
+                        seen[row[j]] = i;
+                        targets[count++] = row[j];
+                    }
+                }
+                offsets[i] = start;
+                if (sorted) {
+                    sort(targets, start, count, ranks);
+                }
+            }
+            offsets[types] = count;
+            if (count < size) {
+                targets = Arrays.copyOf(targets, count);
+            }
+            sources = null;
+            destinations = null;
+            processed = null;
+        }
+
+        int start(int id) {
+            return id >= 0 && id < offsets.length - 1 ? offsets[id] : 0;
+        }
+
+        int end(int id) {
+            return id >= 0 && id < offsets.length - 1 ? offsets[id + 1] : 0;
+        }
+
+        int target(int index) {
+            return targets[index];
+        }
+    }
+
+    /**
+     * Sort a range of ids by their rank. Ids of the same rank keep their
+     * order, as they would with Collections.sort.
+     */
+    private static void sort(int[] a, int from, int to, int[] ranks) {
+        if (to - from < 2) {
+            return;
+        }
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            keys[i - from] = ((long) ranks[a[i]] << 32) | (i - from);
+        }
+        Arrays.sort(keys);
+        int[] copy = Arrays.copyOfRange(a, from, to);
+        for (int i = 0; i < keys.length; i++) {
+            a[from + i] = copy[(int) keys[i]];
+        }
+    }
+
+    /**
+     * Unmodifiable view of a range of ids as a list of types.
+     */
+    private class Row extends AbstractList {
+
+        private final int[] a;
+        private final int from;
+        private final int to;
+
+        Row(int[] a, int from, int to) {
+            this.a = a;
+            this.from = from;
+            this.to = to;
+        }
+
+        public Object get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return docs.get(a[from + index]);
+        }
+
+        public int size() {
+            return to - from;
+        }
+    }
 
     /**
      * Constructor. Build the Tree using the Root of this Javadoc run.
@@ -66,82 +321,296 @@ public class ClassTree {
      * @param root Root of the Document.
      */
     public ClassTree(RootDoc root) {
-        buildTree(root.classes());
+        this(root.classes(), new DocFilter());
+    }
+
+    /**
+     * Constructor. The Tree for the given classes is built lazily, each
+     * part of it when it is queried first. Included classes rejected by the
+     * filter are skipped, their visible super types take their place in the
+     * tree.
+     *
+     * @param classes the classes to build the tree for.
+     * @param filter the filter applied to included classes.
+     */
+    public ClassTree(ClassDoc[] classes, DocFilter filter) {
+        this.classes = classes;
+        this.filter = filter;
     }
 
     /**
-     * Generate mapping for the sub-classes for every class in this run.
-     * Return the sub-class list for java.lang.Object which will be having
-     * sub-class listing for itself and also for each sub-class itself will
-     * have their own sub-class lists.
+     * Take the sub-classes, sub-interfaces and implementors from the index
+     * passed instead of the javadoc type graph. The index has to be up to
+     * date with the classes of this tree, the tree is the same as the one
+     * walked from the type graph.
      *
-     * @param classes all the classes in this run.
+     * @param index the index, null to walk the type graph again.
      */
-    private void buildTree(ClassDoc[] classes) {
+    public void setIndex(HierarchyIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Return the part of the tree the class passed belongs to.
+     */
+    private static int part(ClassDoc cd) {
+        if (cd.isEnum()) {
+            return ENUMS;
+        } else if (cd.isClass()) {
+            return CLASSES;
+        } else if (cd.isInterface()) {
+            return INTERFACES;
+        } else if (cd.isAnnotationType()) {
+            return ANNOTATION_TYPES;
+        }
+        return -1;
+    }
+
+    /**
+     * Build the part of the tree passed if it was not built yet. For the
+     * class parts generate the mapping for the sub-classes for every class
+     * of that kind in this run, starting at java.lang.Object. For the
+     * implementors map every class, enum and annotation type and all their
+     * super-classes to the interfaces they implement.
+     *
+     * While a part is built the edges are only appended, so adding an
+     * edge costs the same for a class with thousands of sub-classes as for
+     * a leaf. They are compressed to sorted rows once at the end.
+     *
+     * @param part the part of the tree.
+     */
+    private void build(int part) {
+        if (built.get(part)) {
+            return;
+        }
+        built.set(part);
+        Set bases = new LinkedHashSet();
         for (int i = 0; i < classes.length; i++) {
-            if (classes[i].isEnum()) {
-                processType(classes[i], baseEnums, subEnums);
-            } else if (classes[i].isClass()) {
-                processType(classes[i], baseclasses, subclasses);
-            } else if (classes[i].isInterface()) {
-                processInterface(classes[i]);
-                List list  = (List)implementingclasses.get(classes[i]);
-                if (list != null) {
-                    Collections.sort(list);
+            int kind = part(classes[i]);
+            if (index != null && part != ENUMS && part != ANNOTATION_TYPES) {
+                processIndexed(classes[i], kind, part, bases);
+            } else if (part == IMPLEMENTORS) {
+                if (kind != INTERFACES && kind != -1) {
+                    processImplementations(classes[i]);
+                }
+            } else if (kind == part) {
+                if (part == INTERFACES) {
+                    processInterface(classes[i], bases);
+                } else {
+                    processType(classes[i], bases, graph(part));
                 }
-            } else if (classes[i].isAnnotationType()) {
-                processType(classes[i], baseAnnotationTypes,
-                    subAnnotationTypes);
             }
         }
 
-        Collections.sort(baseinterfaces);
-        for (Iterator it = subinterfaces.values().iterator(); it.hasNext(); ) {
-            Collections.sort((List)it.next());
+        if (part == CLASSES) {
+            baseclasses = new ArrayList(bases);
+        } else if (part == INTERFACES) {
+            baseinterfaces = sorted(bases);
+        } else if (part == ENUMS) {
+            baseEnums = new ArrayList(bases);
+        } else if (part == ANNOTATION_TYPES) {
+            baseAnnotationTypes = new ArrayList(bases);
         }
-        for (Iterator it = subclasses.values().iterator(); it.hasNext(); ) {
-            Collections.sort((List)it.next());
+        graph(part).compress(docs.size(), ranks());
+    }
+
+    private Graph graph(int part) {
+        switch (part) {
+        case CLASSES:
+            return subclasses;
+        case INTERFACES:
+            return subinterfaces;
+        case ENUMS:
+            return subEnums;
+        case ANNOTATION_TYPES:
+            return subAnnotationTypes;
+        default:
+            return implementingclasses;
         }
     }
 
+    /**
+     * Return the ranks of all types which have an id so far.
+     */
+    private int[] ranks() {
+        if (ranks == null || ranks.length < docs.size()) {
+            ranks = rank();
+        }
+        return ranks;
+    }
+
+    /**
+     * Return the types passed as a list sorted by their rank.
+     */
+    private List sorted(Set types) {
+        int[] a = new int[types.size()];
+        int count = 0;
+        for (Iterator it = types.iterator(); it.hasNext(); ) {
+            a[count++] = id((ClassDoc) it.next());
+        }
+        sort(a, 0, a.length, ranks());
+        List list = new ArrayList(a.length);
+        for (int i = 0; i < a.length; i++) {
+            list.add(docs.get(a[i]));
+        }
+        return list;
+    }
+
+    /**
+     * Sort all types once and return the position of each id. This is the
+     * only place where types are compared with each other, all other sorts
+     * compare the positions.
+     */
+    private int[] rank() {
+        List sorted = new ArrayList(docs);
+        Collections.sort(sorted);
+        int[] result = new int[docs.size()];
+        int rank = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            ClassDoc cd = (ClassDoc) sorted.get(i);
+            if (i > 0 && cd.compareTo(sorted.get(i - 1)) != 0) {
+                rank++;
+            }
+            result[id(cd)] = rank;
+        }
+        return result;
+    }
+
     /**
      * For the class passed map it to it's own sub-class listing.
      * For the Class passed, get the super class,
      * if superclass is non null, (it is not "java.lang.Object")
-     *    get the "value" from the hashmap for this key Class
-     *    if entry not found create one and get that.
-     *    add this Class as a sub class in the list
-     *    Recurse till hits java.lang.Object Null SuperClass.
+     *    add this Class as a sub class of the superclass
+     *    Continue till hits java.lang.Object Null SuperClass.
+     * Every class is processed once per tree. The chain is walked in a
+     * loop, so its depth is not limited by the stack.
      *
      * @param cd class for which sub-class mapping to be generated.
      */
-    private void processType(ClassDoc cd, List bases, Map subs) {
-        ClassDoc superclass = getFirstVisibleSuperClassCD(cd);
-        if (superclass != null) {
-            if (!add(subs, superclass, cd)) {
+    private void processType(ClassDoc cd, Set bases, Graph subs) {
+        while (subs.process(id(cd))) {
+            ClassDoc superclass = getFirstVisibleSuperClassCD(cd);
+            if (superclass == null) {     // cd is java.lang.Object, add it once to the list
+                bases.add(cd);
                 return;
+            }
+            subs.add(id(superclass), id(cd));
+            cd = superclass;
+        }
+    }
+
+    /**
+     * Add the edges of the class passed to the part of the tree passed,
+     * taking the related types from the index. The walks are the same as
+     * for the type graph, so the tree is the same.
+     *
+     * @param cd class for which the mapping is generated.
+     * @param kind the part of the tree the class belongs to.
+     * @param part the part of the tree being built.
+     * @param bases the base types found so far.
+     */
+    private void processIndexed(ClassDoc cd, int kind, int part, Set bases) {
+        if (part == IMPLEMENTORS) {
+            if (kind != INTERFACES && kind != -1) {
+                processIndexedImplementations(cd);
+            }
+        } else if (kind == part) {
+            if (part == INTERFACES) {
+                processInterface(cd, bases);
             } else {
-                processType(superclass, bases, subs);
+                processIndexedType(cd, bases);
             }
-        } else {     // cd is java.lang.Object, add it once to the list
-            if (!bases.contains(cd)) {
+        }
+    }
+
+    private void processIndexedType(ClassDoc cd, Set bases) {
+        while (subclasses.process(id(cd))) {
+            HierarchyIndex.Entry entry = index.get(cd.qualifiedName());
+            ClassDoc superclass = entry == null ? null : named(entry.getSuperclass());
+            if (superclass == null) {
                 bases.add(cd);
+                return;
+            }
+            subclasses.add(id(superclass), id(cd));
+            cd = superclass;
+        }
+    }
+
+    private void processIndexedImplementations(ClassDoc cd) {
+        List chain = new ArrayList();
+        while (cd != null && implementingclasses.process(id(cd))) {
+            chain.add(cd);
+            HierarchyIndex.Entry entry = index.get(cd.qualifiedName());
+            cd = entry == null ? null : named(entry.getSuperclass());
+        }
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            cd = (ClassDoc) chain.get(i);
+            int id = id(cd);
+            HierarchyIndex.Entry entry = index.get(cd.qualifiedName());
+            String[] names = entry == null ? new String[0] : entry.getInterfaces();
+            for (int j = 0; j < names.length; j++) {
+                ClassDoc intfac = named(names[j]);
+                if (intfac != null) {
+                    implementingclasses.add(id(intfac), id);
+                }
             }
         }
-        List intfacs = getAllInterfaces(cd);
-        for (Iterator iter = intfacs.iterator(); iter.hasNext();) {
-            add(implementingclasses, ((Type) iter.next()).asClassDoc(), cd);
+    }
+
+    /**
+     * Return the type with the qualified name passed. Types outside of
+     * this run are taken from the index if they were read in this run and
+     * looked up by name otherwise, so they are not completed.
+     */
+    private ClassDoc named(String name) {
+        if (name == null || classes.length == 0) {
+            return null;
+        }
+        if (named == null) {
+            named = new HashMap();
+            for (int i = 0; i < classes.length; i++) {
+                named.put(classes[i].qualifiedName(), classes[i]);
+            }
+        }
+        ClassDoc cd = (ClassDoc) named.get(name);
+        if (cd == null && !named.containsKey(name)) {
+            HierarchyIndex.Entry entry = index.get(name);
+            cd = entry != null && entry.getClassDoc() != null ? entry.getClassDoc() : classes[0].findClass(name);
+            named.put(name, cd);
+        }
+        return cd;
+    }
+
+    /**
+     * Map the class passed and all its visible super-classes to the
+     * interfaces they implement. Every class is processed once. The
+     * super-classes go first, so their interfaces are cached before the
+     * sub-classes ask for them.
+     *
+     * @param cd class for which the implementations are generated.
+     */
+    private void processImplementations(ClassDoc cd) {
+        List chain = new ArrayList();
+        while (cd != null && implementingclasses.process(id(cd))) {
+            chain.add(cd);
+            cd = getFirstVisibleSuperClassCD(cd);
+        }
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            cd = (ClassDoc) chain.get(i);
+            int id = id(cd);
+            List intfacs = getAllInterfaces(cd);
+            for (Iterator iter = intfacs.iterator(); iter.hasNext();) {
+                implementingclasses.add(id(((Type) iter.next()).asClassDoc()), id);
+            }
         }
     }
 
-    private ClassDoc getFirstVisibleSuperClassCD(ClassDoc classDoc) {
+    ClassDoc getFirstVisibleSuperClassCD(ClassDoc classDoc) {
         if (classDoc == null) {
             return null;
         }
         ClassDoc supClassDoc = classDoc.superclass();
-        while (supClassDoc != null &&
-                  (! (supClassDoc.isPublic() ||
-                              supClassDoc.isIncluded())) ) {
+        while (supClassDoc != null && !isVisible(supClassDoc)) {
             supClassDoc = supClassDoc.superclass();
         }
         if (classDoc.equals(supClassDoc)) {
@@ -150,67 +619,162 @@ public class ClassTree {
         return supClassDoc;
     }
 
+    /**
+     * Included classes are visible if the filter accepts them, all others
+     * only if they are public.
+     *
+     * @param cd the class to check.
+     */
+    private boolean isVisible(ClassDoc cd) {
+        return cd.isIncluded() ? filter.accept(cd) : cd.isPublic();
+    }
+
+    /**
+     * Return all interfaces implemented by the type passed, directly or
+     * through its super-interfaces and super-classes. The result is
+     * computed once per type and is unmodifiable. Classes are cached by
+     * their ClassDoc, parameterized types by their type arguments.
+     *
+     * @param type the class or parameterized type.
+     */
     public List getAllInterfaces(Type type) {
-        Map results = new TreeMap();
-        Type[] interfaceTypes = null;
-        Type superType = null;
-        if (type instanceof ParameterizedType) {
-            interfaceTypes = ((ParameterizedType) type).interfaceTypes();
-            superType = ((ParameterizedType) type).superclassType();
-        } else if (type instanceof ClassDoc) {
-            interfaceTypes = ((ClassDoc) type).interfaceTypes();
-            superType = ((ClassDoc) type).superclassType();
-        } else {
-            interfaceTypes = type.asClassDoc().interfaceTypes();
-            superType = type.asClassDoc().superclassType();
+        Step step = new Step(type, false, false);
+        List resultsList = (List) step.cache.get(step.key);
+        if (resultsList == null) {
+            resolve(step);
+            resultsList = (List) step.cache.get(step.key);
         }
+        return resultsList;
+    }
 
-        for (int i = 0; i < interfaceTypes.length; i++) {
-            Type interfaceType = interfaceTypes[i];
-            ClassDoc interfaceClassDoc = interfaceType.asClassDoc();
-            if (! (interfaceClassDoc.isPublic() ||
-                   interfaceClassDoc.isIncluded())) {
+    /**
+     * One result of getAllInterfaces or getInheritedInterfaces, together
+     * with the cache it is kept in.
+     */
+    private class Step {
+        final Type type;
+        final boolean inherited;
+        final boolean raw;
+        final Map cache;
+        final Object key;
+
+        Step(Type type, boolean inherited, boolean raw) {
+            this.type = type;
+            this.inherited = inherited;
+            this.raw = raw;
+            boolean parameterized = type instanceof ParameterizedType;
+            if (inherited) {
+                cache = parameterized ? parameterizedInheritedInterfaces[raw ? 1 : 0]
+                    : rawInheritedInterfaces[raw ? 1 : 0];
+                key = parameterized ? typeKey(type) : type;
+            } else {
+                cache = parameterized ? parameterizedInterfaces : rawInterfaces;
+                key = parameterized ? typeKey(type) : type.asClassDoc();
+            }
+        }
+
+        boolean isCached() {
+            return cache.containsKey(key);
+        }
+    }
+
+    /**
+     * Compute the result of the step passed and of the steps of all its
+     * super-classes, the topmost first. The chain is collected in a loop
+     * instead of a recursion, so its depth is not limited by the stack.
+     * Once the step of the super-class is cached, computing a step only
+     * looks up its result.
+     */
+    private void resolve(Step step) {
+        List chain = new ArrayList();
+        while (step != null && !step.isCached()) {
+            chain.add(step);
+            step = dependency(step);
+        }
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            Step top = (Step) chain.get(i);
+            if (top.isCached()) {
                 continue;
             }
-            results.put(interfaceClassDoc, interfaceType);
-            List superInterfaces = getAllInterfaces(interfaceType);
-            for (Iterator iter = superInterfaces.iterator(); iter.hasNext(); ) {
-                Type t = (Type) iter.next();
-                results.put(t.asClassDoc(), t);
+            if (top.inherited) {
+                Map results = new LinkedHashMap();
+                addAllInterfaceTypes(results, top.type, interfaceTypes(top.type), top.raw);
+                top.cache.put(top.key, results);
+            } else {
+                top.cache.put(top.key, Collections.unmodifiableList(findAllInterfaces(top.type)));
             }
         }
+    }
+
+    /**
+     * Return the step the step passed asks for, the interfaces inherited
+     * from its super-class. This follows findAllInterfaces and
+     * addAllInterfaceTypes, null for java.lang.Object.
+     */
+    private Step dependency(Step step) {
+        Type superType = superclassType(step.type);
+        if (superType == null) {
+            return null;
+        }
+        boolean raw = false;
+        if (step.inherited && !(step.type instanceof ParameterizedType)) {
+            raw = step.raw || ((ClassDoc) step.type).typeParameters().length > 0;
+        }
+        return new Step(superType, true, raw);
+    }
+
+    private static Type[] interfaceTypes(Type type) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).interfaceTypes();
+        }
+        return type.asClassDoc().interfaceTypes();
+    }
+
+    private static Type superclassType(Type type) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).superclassType();
+        }
+        return type.asClassDoc().superclassType();
+    }
+
+    private List findAllInterfaces(Type type) {
+        Map results = new TreeMap();
+        Type[] interfaceTypes = interfaceTypes(type);
+        Type superType = superclassType(type);
+
+        addInterfaces(results, interfaceTypes, false);
         if (superType == null)
             return new ArrayList(results.values());
         //Try walking the tree.
-        addAllInterfaceTypes(results,
-            superType,
-            superType instanceof ClassDoc ?
-                ((ClassDoc) superType).interfaceTypes() :
-                ((ParameterizedType) superType).interfaceTypes(),
-            false);
+        results.putAll(getInheritedInterfaces(superType, false));
         List resultsList = new ArrayList(results.values());
-        Collections.sort(resultsList, new TypeComparator());
+        Collections.sort(resultsList, typeComparator);
         return resultsList;
     }
 
+    /**
+     * Return the interfaces of the super-class passed and of all its own
+     * super-classes, mapped by their ClassDoc. Once a super-class is used
+     * raw all interfaces above it are raw as well. The result is computed
+     * once per type and raw flag, a sub-class merges the map of its
+     * super-class into its own.
+     *
+     * @param type the super-class, a ClassDoc or a ParameterizedType.
+     * @param raw true if the interfaces should be raw types.
+     */
+    private Map getInheritedInterfaces(Type type, boolean raw) {
+        Step step = new Step(type, true, raw);
+        Map results = (Map) step.cache.get(step.key);
+        if (results == null) {
+            resolve(step);
+            results = (Map) step.cache.get(step.key);
+        }
+        return results;
+    }
+
     private void addAllInterfaceTypes(Map results, Type type,
             Type[] interfaceTypes, boolean raw) {
-        for (int i = 0; i < interfaceTypes.length; i++) {
-            Type interfaceType = interfaceTypes[i];
-            ClassDoc interfaceClassDoc = interfaceType.asClassDoc();
-            if (! (interfaceClassDoc.isPublic() ||
-                interfaceClassDoc.isIncluded())) {
-                continue;
-            }
-            if (raw)
-                interfaceType = interfaceType.asClassDoc();
-            results.put(interfaceClassDoc, interfaceType);
-            List superInterfaces = getAllInterfaces(interfaceType);
-            for (Iterator iter = superInterfaces.iterator(); iter.hasNext(); ) {
-                Type superInterface = (Type) iter.next();
-                results.put(superInterface.asClassDoc(), superInterface);
-            }
-        }
+        addInterfaces(results, interfaceTypes, raw);
         if (type instanceof ParameterizedType)
             findAllInterfaceTypes(results, (ParameterizedType) type);
         else if (((ClassDoc) type).typeParameters().length == 0)
@@ -220,92 +784,356 @@ public class ClassTree {
     }
 
 
+    /**
+     * Map the visible interfaces passed and all their visible
+     * super-interfaces by their ClassDoc. The interfaces are walked depth
+     * first with an explicit stack and each of them once, so a long chain
+     * of super-interfaces costs linear time and no stack. Only the
+     * interfaces passed are made raw, their super-interfaces keep their
+     * type arguments.
+     *
+     * @param results the map to add the interfaces to.
+     * @param interfaceTypes the direct interfaces of a type.
+     * @param raw true if the direct interfaces should be raw types.
+     */
+    private void addInterfaces(Map results, Type[] interfaceTypes, boolean raw) {
+        List stack = new ArrayList();
+        Set visited = new HashSet();
+        for (int i = interfaceTypes.length - 1; i >= 0; i--) {
+            stack.add(raw ? interfaceTypes[i].asClassDoc() : interfaceTypes[i]);
+        }
+        while (!stack.isEmpty()) {
+            Type interfaceType = (Type) stack.remove(stack.size() - 1);
+            ClassDoc interfaceClassDoc = interfaceType.asClassDoc();
+            if (!isVisible(interfaceClassDoc) || !visited.add(interfaceClassDoc)) {
+                continue;
+            }
+            results.put(interfaceClassDoc, interfaceType);
+            Type[] superInterfaces = interfaceTypes(interfaceType);
+            for (int i = superInterfaces.length - 1; i >= 0; i--) {
+                stack.add(superInterfaces[i]);
+            }
+        }
+    }
+
     private void findAllInterfaceTypes(Map results, ClassDoc c, boolean raw) {
         Type superType = c.superclassType();
         if (superType == null)
             return;
-        addAllInterfaceTypes(results, superType,
-                superType instanceof ClassDoc ?
-                ((ClassDoc) superType).interfaceTypes() :
-                ((ParameterizedType) superType).interfaceTypes(),
-                raw);
+        results.putAll(getInheritedInterfaces(superType, raw));
     }
 
     private void findAllInterfaceTypes(Map results, ParameterizedType p) {
         Type superType = p.superclassType();
         if (superType == null)
             return;
-        addAllInterfaceTypes(results, superType,
-                superType instanceof ClassDoc ?
-                ((ClassDoc) superType).interfaceTypes() :
-                ((ParameterizedType) superType).interfaceTypes(),
-                false);
+        results.putAll(getInheritedInterfaces(superType, false));
+    }
+
+    /**
+     * Return the lower case qualified name of the type passed. All types of
+     * a class share the key, as the qualified name of a parameterized type
+     * is the name of its class.
+     */
+    private String sortKey(Type type) {
+        ClassDoc cd = type.asClassDoc();
+        String key = (String) sortKeys.get(cd);
+        if (key == null) {
+            key = type.qualifiedTypeName().toLowerCase();
+            sortKeys.put(cd, key);
+        }
+        return key;
+    }
+
+    /**
+     * Return a key which is equal for two types if they have the same
+     * class and the same type arguments. Type variables are told apart by
+     * their owner.
+     */
+    private static String typeKey(Type type) {
+        StringBuilder key = new StringBuilder();
+        appendTypeKey(key, type);
+        return key.toString();
+    }
+
+    private static void appendTypeKey(StringBuilder key, Type type) {
+        ParameterizedType parameterized = type.asParameterizedType();
+        TypeVariable variable = type.asTypeVariable();
+        WildcardType wildcard = type.asWildcardType();
+        if (parameterized != null) {
+            if (parameterized.containingType() != null) {
+                appendTypeKey(key, parameterized.containingType());
+                key.append('.');
+            }
+            key.append(type.qualifiedTypeName()).append('<');
+            Type[] arguments = parameterized.typeArguments();
+            for (int i = 0; i < arguments.length; i++) {
+                if (i > 0) {
+                    key.append(',');
+                }
+                appendTypeKey(key, arguments[i]);
+            }
+            key.append('>');
+        } else if (variable != null) {
+            ProgramElementDoc owner = variable.owner();
+            key.append(variable.typeName()).append('@').append(owner.qualifiedName());
+            if (owner instanceof ExecutableMemberDoc) {
+                key.append(((ExecutableMemberDoc) owner).signature());
+            }
+        } else if (wildcard != null) {
+            key.append('?');
+            Type[] bounds = wildcard.extendsBounds();
+            for (int i = 0; i < bounds.length; i++) {
+                key.append(" extends ");
+                appendTypeKey(key, bounds[i]);
+            }
+            bounds = wildcard.superBounds();
+            for (int i = 0; i < bounds.length; i++) {
+                key.append(" super ");
+                appendTypeKey(key, bounds[i]);
+            }
+        } else {
+            key.append(type.qualifiedTypeName());
+        }
+        key.append(type.dimension());
     }
 
     /**
      * For the interface passed get the interfaces which it extends, and then
      * put this interface in the sub-interface list of those interfaces. Do it
-     * recursively. If a interface doesn't have super-interface just attach
-     * that interface in the list of all the baseinterfaces.
+     * for the whole hierarchy above. If a interface doesn't have
+     * super-interface just attach that interface in the list of all the
+     * baseinterfaces. Every interface is processed once.
      *
      * @param cd Interface under consideration.
+     * @param bases the base-interfaces found so far.
      */
-    private void processInterface(ClassDoc cd) {
-        ClassDoc[] intfacs = cd.interfaces();
-        if (intfacs.length > 0) {
-            for (int i = 0; i < intfacs.length; i++) {
-                if (!add(subinterfaces, intfacs[i], cd)) {
-                    return;
-                } else {
-                    processInterface(intfacs[i]);   // Recurse
+    private void processInterface(ClassDoc cd, Set bases) {
+        // A depth first walk with an explicit stack. Each entry holds an
+        // interface followed by its super-interfaces, the positions hold
+        // the super-interface visited last. The edges are added in the same
+        // order as by a recursive walk.
+        List stack = new ArrayList();
+        List positions = new ArrayList();
+        enterInterface(cd, bases, stack, positions);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            List intfacs = (List) stack.get(top);
+            int position = ((Integer) positions.get(top)).intValue() + 1;
+            if (position == intfacs.size()) {
+                stack.remove(top);
+                positions.remove(top);
+                continue;
+            }
+            positions.set(top, Integer.valueOf(position));
+            ClassDoc intfac = (ClassDoc) intfacs.get(position);
+            subinterfaces.add(id(intfac), id((ClassDoc) intfacs.get(0)));
+            enterInterface(intfac, bases, stack, positions);
+        }
+    }
+
+    /**
+     * Process the interface passed unless it was already. Its
+     * super-interfaces are pushed on the stack, taken from the index if
+     * there is one. Without super-interfaces it is a base.
+     */
+    private void enterInterface(ClassDoc cd, Set bases, List stack, List positions) {
+        if (!subinterfaces.process(id(cd))) {
+            return;
+        }
+        List intfacs = new ArrayList();
+        intfacs.add(cd);
+        if (index == null) {
+            intfacs.addAll(getVisibleSuperInterfaces(cd));
+        } else {
+            HierarchyIndex.Entry entry = index.get(cd.qualifiedName());
+            String[] names = entry == null ? new String[0] : entry.getSuperInterfaces();
+            for (int i = 0; i < names.length; i++) {
+                ClassDoc intfac = named(names[i]);
+                if (intfac != null) {
+                    intfacs.add(intfac);
                 }
             }
+        }
+        if (intfacs.size() > 1) {
+            stack.add(intfacs);
+            positions.add(Integer.valueOf(0));
         } else {
             // we need to add all the interfaces who do not have
             // super-interfaces to baseinterfaces list to traverse them
-            if (!baseinterfaces.contains(cd)) {
-                baseinterfaces.add(cd);
-            }
+            bases.add(cd);
         }
     }
 
     /**
-     * Adjust the Class Tree. Add the class interface  in to it's super-class'
-     * or super-interface's sub-interface list.
+     * Return the direct super-interfaces of the interface passed. Included
+     * interfaces rejected by the filter are replaced by their own
+     * super-interfaces.
      *
-     * @param map the entire map.
-     * @param superclass java.lang.Object or the super-interface.
-     * @param cd sub-interface to be mapped.
-     * @returns boolean true if class added, false if class already processed.
-     */
-    private boolean add(Map map, ClassDoc superclass, ClassDoc cd) {
-        List list = (List)map.get(superclass);
-        if (list == null) {
-            list = new ArrayList();
-            map.put(superclass, list);
-        }
-        if (list.contains(cd)) {
-            return false;
-        } else {
-            list.add(cd);
+     * @param cd Interface under consideration.
+     */
+    List getVisibleSuperInterfaces(ClassDoc cd) {
+        Set result = new LinkedHashSet();
+        List stack = new ArrayList();
+        pushInterfaces(stack, cd);
+        while (!stack.isEmpty()) {
+            ClassDoc intfac = (ClassDoc) stack.remove(stack.size() - 1);
+            if (!intfac.isIncluded() || filter.accept(intfac)) {
+                result.add(intfac);
+            } else {
+                pushInterfaces(stack, intfac);
+            }
         }
-        return true;
+        return new ArrayList(result);
     }
 
     /**
-     * From the map return the list of sub-classes or sub-interfaces. If list
-     * is null create a new one and return it.
+     * Push the direct super-interfaces of the type passed in reverse order,
+     * so they are popped in declaration order.
+     */
+    private static void pushInterfaces(List stack, ClassDoc cd) {
+        ClassDoc[] intfacs = cd.interfaces();
+        for (int i = intfacs.length - 1; i >= 0; i--) {
+            stack.add(intfacs[i]);
+        }
+    }
+
+    /**
+     * Return the dense id of the type passed, assigning the next free one
+     * on first use.
+     */
+    private int id(ClassDoc cd) {
+        Integer id = (Integer) ids.get(cd);
+        if (id == null) {
+            id = Integer.valueOf(docs.size());
+            ids.put(cd, id);
+            docs.add(cd);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Return the id of the type passed, or -1 if it is not in the tree.
+     */
+    private int lookup(ClassDoc cd) {
+        Integer id = (Integer) ids.get(cd);
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * From the graph return the list of sub-classes or sub-interfaces.
      *
-     * @param map The entire map.
+     * @param graph The entire graph.
      * @param cd class for which the sub-class list is requested.
      * @returns List Sub-Class list for the class passed.
      */
-    private List get(Map map, ClassDoc cd) {
-        List list = (List)map.get(cd);
-        if (list == null) {
-            return new ArrayList();
+    private List get(Graph graph, ClassDoc cd) {
+        int id = lookup(cd);
+        return new Row(graph.targets, graph.start(id), graph.end(id));
+    }
+
+    /**
+     * Transitive closure over one of the sub-type graphs. The closure of
+     * a type holds its own members plus the closures of all its sub-types.
+     * It is kept as a bit set over the type ids and computed once per
+     * type, sub-types first, so every edge is followed only once no matter
+     * how many types are queried.
+     */
+    private class Closure {
+
+        private final Graph subs;
+        private final Graph members;
+
+        /**
+         * The bit set of the closure for each id.
+         */
+        private final BitSet[] closures = new BitSet[docs.size()];
+
+        /**
+         * The sorted ids of the closure for each id.
+         */
+        private final int[][] results = new int[docs.size()][];
+
+        /**
+         * @param subs the edges to the direct sub-types.
+         * @param members the edges to the own members of each type.
+         */
+        Closure(Graph subs, Graph members) {
+            this.subs = subs;
+            this.members = members;
+        }
+
+        /**
+         * Return the sorted, unmodifiable closure of the type passed.
+         */
+        List get(ClassDoc cd) {
+            int id = lookup(cd);
+            if (id < 0 || id >= results.length) {
+                return Collections.EMPTY_LIST;
+            }
+            int[] result = results[id];
+            if (result == null) {
+                BitSet bits = compute(id);
+                result = new int[bits.cardinality()];
+                int count = 0;
+                for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                    result[count++] = i;
+                }
+                sort(result, 0, result.length, ranks());
+                results[id] = result;
+            }
+            return new Row(result, 0, result.length);
+        }
+
+        /**
+         * Compute the closures of the type passed and of all its sub-types
+         * not computed yet, in post-order. A sub-type which is still in
+         * progress can only be reached through a cycle and is skipped.
+         */
+        private BitSet compute(int id) {
+            BitSet pending = new BitSet();
+            int[] stack = new int[16];
+            int size = 0;
+            stack[size++] = id;
+            while (size > 0) {
+                int top = stack[size - 1];
+                if (closures[top] != null) {
+                    size--;
+                    continue;
+                }
+                if (!pending.get(top)) {
+                    pending.set(top);
+                    boolean ready = true;
+                    for (int i = subs.start(top); i < subs.end(top); i++) {
+                        int sub = subs.target(i);
+                        if (closures[sub] == null && !pending.get(sub)) {
+                            if (size == stack.length) {
+                                stack = Arrays.copyOf(stack, size * 2);
+                            }
+                            stack[size++] = sub;
+                            ready = false;
+                        }
+                    }
+                    if (!ready) {
+                        continue;
+                    }
+                }
+                BitSet bits = new BitSet();
+                for (int i = members.start(top); i < members.end(top); i++) {
+                    bits.set(members.target(i));
+                }
+                for (int i = subs.start(top); i < subs.end(top); i++) {
+                    BitSet sub = closures[subs.target(i)];
+                    if (sub != null) {
+                        bits.or(sub);
+                    }
+                }
+                closures[top] = bits;
+                pending.clear(top);
+                size--;
+            }
+            return closures[id];
         }
-        return list;
     }
 
     /**
@@ -314,6 +1142,7 @@ public class ClassTree {
      * @param cd class whose sub-class list is required.
      */
     public List subclasses(ClassDoc cd) {
+        build(CLASSES);
         return get(subclasses, cd);
     }
 
@@ -323,34 +1152,24 @@ public class ClassTree {
      * @param cd interface whose sub-interface list is required.
      */
     public List subinterfaces(ClassDoc cd) {
+        build(INTERFACES);
         return get(subinterfaces, cd);
     }
 
     /**
      *  Return the list of classes which implement the interface passed.
+     *  If class x implements a subinterface of cd, then it follows that
+     *  class x implements cd. The list is unmodifiable.
      *
      * @param cd interface whose implementing-classes list is required.
      */
     public List implementingclasses(ClassDoc cd) {
-        List result = get(implementingclasses, cd);
-        List subinterfaces = allSubs(cd, false);
-
-        //If class x implements a subinterface of cd, then it follows
-        //that class x implements cd.
-        Iterator implementingClassesIter, subInterfacesIter = subinterfaces.listIterator();
-        ClassDoc c;
-        while(subInterfacesIter.hasNext()){
-            implementingClassesIter = implementingclasses((ClassDoc)
-                    subInterfacesIter.next()).listIterator();
-            while(implementingClassesIter.hasNext()){
-                c = (ClassDoc)implementingClassesIter.next();
-                if(! result.contains(c)){
-                    result.add(c);
-                }
-            }
+        if (implementingClosure == null) {
+            build(INTERFACES);
+            build(IMPLEMENTORS);
+            implementingClosure = new Closure(subinterfaces, implementingclasses);
         }
-        Collections.sort(result);
-        return result;
+        return implementingClosure.get(cd);
     }
 
     /**
@@ -361,42 +1180,46 @@ public class ClassTree {
      * enum tree.
      */
     public List subs(ClassDoc cd, boolean isEnum) {
+        Graph graph = subsGraph(cd, isEnum);
+        return graph == null ? null : get(graph, cd);
+    }
+
+    private Graph subsGraph(ClassDoc cd, boolean isEnum) {
+        int part;
         if (isEnum) {
-            return get(subEnums, cd);
+            part = ENUMS;
         } else if (cd.isAnnotationType()) {
-            return get(subAnnotationTypes, cd);
+            part = ANNOTATION_TYPES;
         } else if (cd.isInterface()) {
-            return get(subinterfaces, cd);
+            part = INTERFACES;
         } else if (cd.isClass()) {
-            return get(subclasses, cd);
+            part = CLASSES;
         } else {
             return null;
         }
-
+        build(part);
+        return graph(part);
     }
 
     /**
      * Return a list of all direct or indirect, sub-classes and subinterfaces
-     * of the ClassDoc argument.
+     * of the ClassDoc argument. The list is unmodifiable.
      *
      * @param cd ClassDoc whose sub-classes or sub-interfaces are requested.
      * @param isEnum true if the subclasses should be forced to come from the
      * enum tree.
      */
     public List allSubs(ClassDoc cd, boolean isEnum) {
-        List list = subs(cd, isEnum);
-        for (int i = 0; i < list.size(); i++) {
-            cd = (ClassDoc)list.get(i);
-            List tlist = subs(cd, isEnum);
-            for (int j = 0; j < tlist.size(); j++) {
-                ClassDoc tcd = (ClassDoc)tlist.get(j);
-                if (!list.contains(tcd)) {
-                    list.add(tcd);
-                }
-            }
+        Graph graph = subsGraph(cd, isEnum);
+        if (graph == null) {
+            return null;
         }
-        Collections.sort(list);
-        return list;
+        Closure closure = (Closure) subClosures.get(graph);
+        if (closure == null) {
+            closure = new Closure(graph, graph);
+            subClosures.put(graph, closure);
+        }
+        return closure.get(cd);
     }
 
     /**
@@ -405,6 +1228,7 @@ public class ClassTree {
      *  classes.
      */
     public List baseclasses() {
+        build(CLASSES);
         return baseclasses;
     }
 
@@ -413,6 +1237,7 @@ public class ClassTree {
      *  which do not have super-interface.
      */
     public List baseinterfaces() {
+        build(INTERFACES);
         return baseinterfaces;
     }
 
@@ -421,6 +1246,7 @@ public class ClassTree {
      *  which do not have super-enums.
      */
     public List baseEnums() {
+        build(ENUMS);
         return baseEnums;
     }
 
@@ -429,6 +1255,47 @@ public class ClassTree {
      *  annotation types which do not have super-annotation types.
      */
     public List baseAnnotationTypes() {
+        build(ANNOTATION_TYPES);
         return baseAnnotationTypes;
     }
-}
\ No newline at end of file
+
+    /**
+     * Write all parts of the tree to the writer passed as an edge list,
+     * one line per type and per edge, in one pass over the rows:
+     *
+     * <pre>
+     * # xml-doclet hierarchy 1
+     * T  id  qualified name  1 if the type is part of the run, else 0
+     * C  id of the class  id of a direct sub-class
+     * I  id of the interface  id of a direct sub-interface
+     * E  id of the enum  id of a direct sub-enum
+     * A  id of the annotation type  id of a direct sub-annotation type
+     * M  id of the interface  id of a class implementing it
+     * </pre>
+     *
+     * The columns are separated by tabs. Every type is listed before the
+     * edges referring to it, the edges of a type are in the order of the
+     * lists returned by the tree.
+     *
+     * @param writer the writer to write to.
+     */
+    public void writeEdges(Writer writer) throws IOException {
+        for (int part = CLASSES; part <= IMPLEMENTORS; part++) {
+            build(part);
+        }
+        writer.write("# xml-doclet hierarchy 1\n");
+        for (int id = 0; id < docs.size(); id++) {
+            ClassDoc cd = (ClassDoc) docs.get(id);
+            writer.write("T\t" + id + "\t" + cd.qualifiedName() + "\t" + (cd.isIncluded() ? "1" : "0") + "\n");
+        }
+        String kinds = "CIEAM";
+        for (int part = CLASSES; part <= IMPLEMENTORS; part++) {
+            Graph graph = graph(part);
+            for (int id = 0; id < docs.size(); id++) {
+                for (int i = graph.start(id); i < graph.end(id); i++) {
+                    writer.write(kinds.charAt(part) + "\t" + id + "\t" + graph.target(i) + "\n");
+                }
+            }
+        }
+    }
+}
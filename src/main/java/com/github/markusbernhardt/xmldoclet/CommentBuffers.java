@@ -0,0 +1,53 @@
+package com.github.markusbernhardt.xmldoclet;
+
+/**
+ * The buffers the comments of one thread are rendered into.
+ *
+ * <p>A comment is rendered into the buffer of its nesting depth, which is kept and reused for the next comment
+ * of the same depth, so a buffer grows to the longest comment once instead of for every comment. Comments are
+ * nested when a taglet renders another comment while the first one is rendered, like {@inheritDoc} does. A
+ * buffer grown beyond {@link #MAX_RETAINED} characters is dropped after use rather than kept for the whole run.
+ */
+final class CommentBuffers {
+
+  /**
+   * The largest capacity of a buffer kept for reuse.
+   */
+  final static int MAX_RETAINED = 1 << 16;
+
+  private StringBuilder[] buffers = new StringBuilder[4];
+
+  private int depth;
+
+  /**
+   * Returns an empty buffer for the next comment of this thread. Every buffer acquired must be released.
+   *
+   * @return the buffer of the current depth
+   */
+  StringBuilder acquire() {
+    if (depth == buffers.length) {
+      StringBuilder[] grown = new StringBuilder[depth * 2];
+      System.arraycopy(buffers, 0, grown, 0, depth);
+      buffers = grown;
+    }
+
+    StringBuilder buffer = buffers[depth];
+    if (buffer == null) {
+      buffer = new StringBuilder(256);
+      buffers[depth] = buffer;
+    }
+    depth++;
+    buffer.setLength(0);
+    return buffer;
+  }
+
+  /**
+   * Releases the buffer acquired last.
+   */
+  void release() {
+    depth--;
+    if (buffers[depth].capacity() > MAX_RETAINED) {
+      buffers[depth] = null;
+    }
+  }
+}
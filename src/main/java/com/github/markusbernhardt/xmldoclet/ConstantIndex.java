@@ -0,0 +1,128 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Doc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.MemberDoc;
+import com.sun.javadoc.PackageDoc;
+import com.sun.javadoc.Tag;
+
+/**
+ * The constant values of the fields of a run, keyed by qualified field name.
+ *
+ * <p>The values of all fields of the run are read once when the index is filled. They back the
+ * <code>default</code> attribute of fields and the {@value} tag. Fields outside the run are read when they are
+ * first referenced and kept as well. A field without a constant value is kept as {@link #NONE}. The index may be
+ * read and filled by several threads at once, as the {@value} taglet is.
+ */
+public class ConstantIndex {
+
+  /**
+   * The value kept for fields which are not constant, a distinct instance compared by identity.
+   */
+  private final static String NONE = new String();
+
+  private final Map<String, String> values = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Adds the fields of the given types.
+   *
+   * @param classDocs
+   *            The types of the run
+   */
+  public void add(ClassDoc[] classDocs) {
+    for (ClassDoc classDoc : classDocs) {
+      for (FieldDoc fieldDoc : classDoc.fields(false)) {
+        put(fieldDoc.qualifiedName(), fieldDoc.constantValueExpression());
+      }
+    }
+  }
+
+  /**
+   * Returns the constant value of a field.
+   *
+   * @param qualifiedName
+   *            The qualified name of the field
+   * @param fieldDoc
+   *            The field, read if it is not in the index yet
+   * @return the constant value as a Java expression, <code>null</code> if the field is not constant
+   */
+  public String getValue(String qualifiedName, FieldDoc fieldDoc) {
+    String value = values.get(qualifiedName);
+    if (value == null) {
+      return put(qualifiedName, fieldDoc.constantValueExpression());
+    }
+    return value != NONE ? value : null;
+  }
+
+  /**
+   * Returns the constant value referenced by a {@value} tag.
+   *
+   * <p>Without an argument the tag refers to the field holding it. Otherwise the argument is
+   * <code>package.Class#FIELD</code>, where the class may also be unqualified or left out for the class holding
+   * the tag.
+   *
+   * @param tag
+   *            The {@value} tag
+   * @return the constant value as a Java expression, <code>null</code> if the field is unknown or not constant
+   */
+  public String getValue(Tag tag) {
+    String text = tag.text().trim();
+    Doc holder = tag.holder();
+    if (text.length() == 0) {
+      return holder instanceof FieldDoc ? getValue(((FieldDoc) holder).qualifiedName(), (FieldDoc) holder) : null;
+    }
+
+    ClassDoc context = null;
+    if (holder instanceof ClassDoc) {
+      context = (ClassDoc) holder;
+    } else if (holder instanceof MemberDoc) {
+      context = ((MemberDoc) holder).containingClass();
+    }
+
+    int hash = text.indexOf('#');
+    String className = hash > 0 ? text.substring(0, hash) : null;
+    String fieldName = text.substring(hash + 1);
+    if (className == null) {
+      return context != null ? getValue(context, fieldName) : null;
+    }
+
+    // A qualified reference to a known field needs no resolution
+    String value = values.get(className + "." + fieldName);
+    if (value != null) {
+      return value != NONE ? value : null;
+    }
+
+    ClassDoc classDoc = null;
+    if (context != null) {
+      classDoc = context.findClass(className);
+    } else if (holder instanceof PackageDoc) {
+      classDoc = ((PackageDoc) holder).findClass(className);
+    }
+    return classDoc != null ? getValue(classDoc, fieldName) : null;
+  }
+
+  private String getValue(ClassDoc classDoc, String fieldName) {
+    String qualifiedName = classDoc.qualifiedName() + "." + fieldName;
+    String value = values.get(qualifiedName);
+    if (value != null) {
+      return value != NONE ? value : null;
+    }
+
+    for (FieldDoc fieldDoc : classDoc.fields(false)) {
+      if (fieldDoc.name().equals(fieldName)) {
+        value = fieldDoc.constantValueExpression();
+        break;
+      }
+    }
+    return put(qualifiedName, value);
+  }
+
+  private String put(String qualifiedName, String value) {
+    values.put(qualifiedName, value != null ? value : NONE);
+    return value;
+  }
+}
@@ -0,0 +1,177 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.PackageDoc;
+import com.sun.javadoc.ProgramElementDoc;
+
+/**
+ * Decides which packages, types and members are written to the output.
+ *
+ * <p>The filter is consulted by {@link Parser} and {@link ClassTree} before any work is done for an element,
+ * so that javadoc can run with <code>-private</code> while only the public API is published.
+ */
+public class DocFilter {
+
+  /**
+   * The accepted scope values, from the narrowest to the widest.
+   */
+  public final static String[] SCOPES = { "public", "protected", "package", "private" };
+
+  private final static int PUBLIC = 0;
+  private final static int PROTECTED = 1;
+  private final static int PACKAGE = 2;
+  private final static int PRIVATE = 3;
+
+  private final int scope;
+
+  private final List<Pattern> includes;
+
+  private final List<Pattern> excludes;
+
+  /**
+   * Decisions already taken per package name.
+   */
+  private final Map<String, Boolean> packages = new HashMap<String, Boolean>();
+
+  /**
+   * Creates a filter accepting everything.
+   */
+  public DocFilter() {
+    this(null, null, null);
+  }
+
+  /**
+   * Creates a new filter.
+   *
+   * @param scope
+   *            One of {@link #SCOPES}, <code>null</code> for "private"
+   * @param includes
+   *            Colon separated package globs to include, <code>null</code> for all packages
+   * @param excludes
+   *            Colon separated package globs to exclude, <code>null</code> for none
+   */
+  public DocFilter(String scope, String includes, String excludes) {
+    this.scope = scope == null ? PRIVATE : parseScope(scope);
+    this.includes = parseGlobs(includes);
+    this.excludes = parseGlobs(excludes);
+  }
+
+  /**
+   * Checks whether the given value is one of {@link #SCOPES}.
+   *
+   * @param scope
+   *            The value of the <code>-scope</code> option
+   * @return <code>true</code> if the value is valid
+   */
+  public static boolean isValidScope(String scope) {
+    for (String s : SCOPES) {
+      if (s.equals(scope)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int parseScope(String scope) {
+    for (int i = 0; i < SCOPES.length; i++) {
+      if (SCOPES[i].equals(scope)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unknown scope: " + scope);
+  }
+
+  private static List<Pattern> parseGlobs(String globs) {
+    List<Pattern> patterns = new ArrayList<Pattern>();
+    if (globs == null) {
+      return patterns;
+    }
+    for (String glob : globs.split(":")) {
+      glob = glob.trim();
+      if (glob.length() == 0) {
+        continue;
+      }
+      StringBuilder regex = new StringBuilder();
+      for (int i = 0; i < glob.length(); i++) {
+        char c = glob.charAt(i);
+        if (c == '*') {
+          regex.append(".*");
+        } else if (c == '?') {
+          regex.append('.');
+        } else {
+          regex.append(Pattern.quote(String.valueOf(c)));
+        }
+      }
+      patterns.add(Pattern.compile(regex.toString()));
+    }
+    return patterns;
+  }
+
+  private static boolean matches(List<Pattern> patterns, String name) {
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(name).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param packageDoc
+   *            A package of this run
+   * @return <code>true</code> if the package passes the include and exclude globs
+   */
+  public boolean accept(PackageDoc packageDoc) {
+    String name = packageDoc.name();
+    Boolean accepted = packages.get(name);
+    if (accepted == null) {
+      accepted = (includes.isEmpty() || matches(includes, name)) && !matches(excludes, name);
+      packages.put(name, accepted);
+    }
+    return accepted;
+  }
+
+  /**
+   * @param doc
+   *            A member or nested type whose container was already accepted
+   * @return <code>true</code> if the element is visible in the configured scope
+   */
+  public boolean accept(ProgramElementDoc doc) {
+    if (scope == PRIVATE) {
+      return true;
+    }
+    int modifiers = doc.modifierSpecifier();
+    switch (scope) {
+    case PUBLIC:
+      return Modifier.isPublic(modifiers);
+    case PROTECTED:
+      return Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers);
+    default:
+      return !Modifier.isPrivate(modifiers);
+    }
+  }
+
+  /**
+   * @param classDoc
+   *            A type of this run
+   * @return <code>true</code> if the package and the type including all enclosing types are accepted
+   */
+  public boolean accept(ClassDoc classDoc) {
+    if (!accept(classDoc.containingPackage())) {
+      return false;
+    }
+    for (ClassDoc cd = classDoc; cd != null; cd = cd.containingClass()) {
+      if (!accept((ProgramElementDoc) cd)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
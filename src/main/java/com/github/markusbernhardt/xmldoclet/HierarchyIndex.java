@@ -0,0 +1,626 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.SourcePosition;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.TypeVariable;
+import com.sun.javadoc.WildcardType;
+
+/**
+ * On-disk index of the class hierarchy, kept between runs over the same sources.
+ *
+ * <p>For every included type the index stores its source file, the content hash of that file, the declared
+ * super types and the hierarchy facts {@link ClassTree} needs: the first visible super class, the visible
+ * super-interfaces and all implemented interfaces. The external super types the tree walks through, like
+ * java.lang.Throwable, are stored with the same facts and without a file. On the next run only types whose
+ * file changed, and the sub-types of those, are read from the javadoc type graph again. All other facts come
+ * from the index, so their super types on the classpath are never completed.
+ */
+public class HierarchyIndex {
+
+  private final static Logger log = LoggerFactory.getLogger(HierarchyIndex.class);
+
+  private final static String HEADER = "# xml-doclet hierarchy index 1";
+
+  private final static String[] NONE = new String[0];
+
+  /**
+   * The facts stored for one type.
+   */
+  public static class Entry {
+
+    private String file;
+    private String[] supertypes = NONE;
+    private boolean accepted;
+    private String superclass;
+    private String[] superInterfaces = NONE;
+    private String[] interfaces = NONE;
+
+    /**
+     * The type itself if it was read in this run, not saved.
+     */
+    private ClassDoc classDoc;
+
+    /**
+     * @return the path of the source file, empty for types outside of the run
+     */
+    public String getFile() {
+      return file;
+    }
+
+    /**
+     * @return the qualified names of the declared super class and interfaces
+     */
+    public String[] getSupertypes() {
+      return supertypes;
+    }
+
+    /**
+     * @return <code>true</code> if the type passed the filter
+     */
+    public boolean isAccepted() {
+      return accepted;
+    }
+
+    /**
+     * @return the qualified name of the first visible super class, <code>null</code> if there is none
+     */
+    public String getSuperclass() {
+      return superclass;
+    }
+
+    /**
+     * @return the qualified names of the visible direct super-interfaces
+     */
+    public String[] getSuperInterfaces() {
+      return superInterfaces;
+    }
+
+    /**
+     * @return the qualified names of all implemented interfaces
+     */
+    public String[] getInterfaces() {
+      return interfaces;
+    }
+
+    /**
+     * @return the type if it was read in this run, <code>null</code> if the entry was loaded
+     */
+    public ClassDoc getClassDoc() {
+      return classDoc;
+    }
+  }
+
+  private final File file;
+
+  /**
+   * Identifies the options the facts depend on. An index written with other options is not used.
+   */
+  private final String signature;
+
+  /**
+   * The content hash for each source file.
+   */
+  private Map<String, String> hashes = new HashMap<String, String>();
+
+  /**
+   * The facts for each type by qualified name.
+   */
+  private Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /**
+   * The number of types read from the javadoc type graph by the last update.
+   */
+  private int updatedCount;
+
+  /**
+   * Creates a new index.
+   *
+   * @param file
+   *            The file the index is loaded from and saved to, <code>null</code> to keep it in memory only
+   * @param signature
+   *            The options the hierarchy depends on, e.g. the filter options
+   */
+  public HierarchyIndex(File file, String signature) {
+    this.file = file;
+    this.signature = signature;
+  }
+
+  /**
+   * Loads the index if the file exists and was written with the same signature.
+   */
+  public void load() throws IOException {
+    hashes.clear();
+    entries.clear();
+    if (file == null || !file.isFile()) {
+      return;
+    }
+
+    BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      if (!HEADER.equals(reader.readLine()) || !("S\t" + signature).equals(reader.readLine())) {
+        log.info("Ignoring hierarchy index " + file + ", it was written by another version or with other options");
+        return;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] columns = line.split("\t", -1);
+        if (columns[0].equals("F") && columns.length == 3) {
+          hashes.put(columns[1], columns[2]);
+        } else if (columns[0].equals("T") && columns.length == 8) {
+          Entry entry = new Entry();
+          entry.file = columns[2];
+          entry.supertypes = split(columns[3]);
+          entry.accepted = columns[4].equals("1");
+          entry.superclass = columns[5].length() == 0 ? null : columns[5];
+          entry.superInterfaces = split(columns[6]);
+          entry.interfaces = split(columns[7]);
+          entries.put(columns[1], entry);
+        } else {
+          throw new IOException("Invalid line in hierarchy index " + file + ": " + line);
+        }
+      }
+    } catch (IOException e) {
+      hashes.clear();
+      entries.clear();
+      throw e;
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Writes the index.
+   */
+  public void save() throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    try {
+      writer.write(HEADER + "\n");
+      writer.write("S\t" + signature + "\n");
+      for (Map.Entry<String, String> hash : hashes.entrySet()) {
+        writer.write("F\t" + hash.getKey() + "\t" + hash.getValue() + "\n");
+      }
+      for (Map.Entry<String, Entry> type : entries.entrySet()) {
+        Entry entry = type.getValue();
+        writer.write("T\t" + type.getKey() + "\t" + entry.file + "\t" + join(entry.supertypes) + "\t"
+            + (entry.accepted ? "1" : "0") + "\t" + (entry.superclass == null ? "" : entry.superclass) + "\t"
+            + join(entry.superInterfaces) + "\t" + join(entry.interfaces) + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * @param qualifiedName
+   *            The qualified name of a type
+   * @return the facts of the type, <code>null</code> if it is not in the index
+   */
+  public Entry get(String qualifiedName) {
+    return entries.get(qualifiedName);
+  }
+
+  /**
+   * @return the number of types in the index
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of types the last update read from the javadoc type graph
+   */
+  public int getUpdatedCount() {
+    return updatedCount;
+  }
+
+  /**
+   * Brings the index up to date with this run. A type is read again if its source file changed, if it is
+   * new, or if one of its declared super types was read again or entered or left the run. Types no longer
+   * in the run or reached from it are removed.
+   *
+   * <p>With more than one thread the types are read concurrently, each thread computing the facts with its
+   * own tree. The javadoc type graph is not thread safe while types are completed, so all types reached
+   * from the run are completed on the calling thread first.
+   *
+   * @param classDocs
+   *            All included types of this run, whether they pass the filter or not
+   * @param filter
+   *            The filter of this run
+   * @param threads
+   *            The number of threads reading the types
+   */
+  public void update(ClassDoc[] classDocs, DocFilter filter, int threads) {
+    Map<String, ClassDoc> classDocsByName = new HashMap<String, ClassDoc>();
+    Map<String, String> newHashes = new HashMap<String, String>();
+    Set<String> changed = new HashSet<String>();
+    for (ClassDoc classDoc : classDocs) {
+      String name = classDoc.qualifiedName();
+      classDocsByName.put(name, classDoc);
+      String path = path(classDoc);
+      String hash = newHashes.get(path);
+      if (hash == null && file != null) {
+        hash = hash(path);
+        newHashes.put(path, hash);
+      }
+      Entry entry = entries.get(name);
+      if (entry == null || !entry.file.equals(path) || hash == null || !hash.equals(hashes.get(path))) {
+        changed.add(name);
+      }
+    }
+
+    // Everything below a changed type is stale as well, follow the declared super types
+    Map<String, Boolean> stale = new HashMap<String, Boolean>();
+    for (String name : classDocsByName.keySet()) {
+      isStale(name, classDocsByName, changed, stale);
+    }
+
+    Map<String, Entry> newEntries = new HashMap<String, Entry>();
+    List<ClassDoc> batch = new ArrayList<ClassDoc>();
+    List<String> pending = new ArrayList<String>();
+    for (ClassDoc classDoc : classDocs) {
+      String name = classDoc.qualifiedName();
+      if (stale.get(name).booleanValue()) {
+        batch.add(classDoc);
+      } else {
+        newEntries.put(name, entries.get(name));
+        pending.add(name);
+      }
+    }
+    if (threads > 1 && !batch.isEmpty()) {
+      complete(classDocs, filter);
+    }
+
+    ClassTree[] trees = new ClassTree[Math.max(1, threads)];
+    for (int i = 0; i < trees.length; i++) {
+      trees[i] = new ClassTree(new ClassDoc[0], filter);
+    }
+    Map<String, ClassDoc> reached = new HashMap<String, ClassDoc>();
+    updatedCount = 0;
+    while (!batch.isEmpty() || !pending.isEmpty()) {
+      Map<String, Entry> read = read(batch, filter, trees, reached);
+      updatedCount += read.size();
+      newEntries.putAll(read);
+      pending.addAll(read.keySet());
+
+      // Add the external super types the tree walks through, reading them in the next batch
+      batch = new ArrayList<ClassDoc>();
+      Set<String> batchNames = new HashSet<String>();
+      while (!pending.isEmpty()) {
+        Entry entry = newEntries.get(pending.remove(pending.size() - 1));
+        List<String> references = new ArrayList<String>(Arrays.asList(entry.superInterfaces));
+        if (entry.superclass != null) {
+          references.add(entry.superclass);
+        }
+        for (String name : references) {
+          if (newEntries.containsKey(name) || batchNames.contains(name)) {
+            continue;
+          }
+          Entry external = entries.get(name);
+          if (external == null || Boolean.TRUE.equals(stale.get(name))) {
+            ClassDoc classDoc = reached.get(name);
+            if (classDoc == null && classDocs.length > 0) {
+              classDoc = classDocs[0].findClass(name);
+            }
+            if (classDoc != null) {
+              batch.add(classDoc);
+              batchNames.add(name);
+            }
+          } else {
+            newEntries.put(name, external);
+            pending.add(name);
+          }
+        }
+      }
+    }
+
+    entries = newEntries;
+    hashes = newHashes;
+    log.debug("Hierarchy index: " + updatedCount + " of " + entries.size() + " types read again");
+  }
+
+  /**
+   * Reads the facts of the types passed, concurrently if there is more than one tree.
+   *
+   * @param classDocs
+   *            The types to read
+   * @param filter
+   *            The filter of this run
+   * @param trees
+   *            One tree per thread, keeping the interfaces computed so far
+   * @param reached
+   *            Receives the super types the facts refer to
+   * @return the facts by qualified name
+   */
+  private static Map<String, Entry> read(List<ClassDoc> classDocs, DocFilter filter, ClassTree[] trees,
+      Map<String, ClassDoc> reached) {
+    if (classDocs.isEmpty()) {
+      return new HashMap<String, Entry>();
+    } else if (trees.length == 1 || classDocs.size() < 2) {
+      Reader reader = new Reader(classDocs, 0, 1, filter, trees[0]);
+      Map<String, Entry> result = reader.call();
+      reached.putAll(reader.reached);
+      return result;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(trees.length);
+    try {
+      List<Reader> readers = new ArrayList<Reader>();
+      List<Future<Map<String, Entry>>> futures = new ArrayList<Future<Map<String, Entry>>>();
+      for (int i = 0; i < trees.length; i++) {
+        Reader reader = new Reader(classDocs, i, trees.length, filter, trees[i]);
+        readers.add(reader);
+        futures.add(executor.submit(reader));
+      }
+      Map<String, Entry> result = new HashMap<String, Entry>();
+      for (int i = 0; i < futures.size(); i++) {
+        result.putAll(futures.get(i).get());
+        reached.putAll(readers.get(i).reached);
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Reads every n-th type of a batch.
+   */
+  private static class Reader implements Callable<Map<String, Entry>> {
+
+    private final List<ClassDoc> classDocs;
+    private final int offset;
+    private final int step;
+    private final DocFilter filter;
+    private final ClassTree tree;
+    private final Map<String, ClassDoc> reached = new HashMap<String, ClassDoc>();
+
+    Reader(List<ClassDoc> classDocs, int offset, int step, DocFilter filter, ClassTree tree) {
+      this.classDocs = classDocs;
+      this.offset = offset;
+      this.step = step;
+      this.filter = filter;
+      this.tree = tree;
+    }
+
+    @Override
+    public Map<String, Entry> call() {
+      Map<String, Entry> result = new HashMap<String, Entry>();
+      for (int i = offset; i < classDocs.size(); i += step) {
+        ClassDoc classDoc = classDocs.get(i);
+        boolean accepted = !classDoc.isIncluded() || filter.accept(classDoc);
+        result.put(classDoc.qualifiedName(), HierarchyIndex.read(classDoc, accepted, tree, reached));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Completes all types reached from the types passed, so that reading them later on other threads does
+   * not change the javadoc type graph.
+   */
+  private static void complete(ClassDoc[] classDocs, DocFilter filter) {
+    Set<ClassDoc> visited = new HashSet<ClassDoc>();
+    List<Type> stack = new ArrayList<Type>();
+    for (ClassDoc classDoc : classDocs) {
+      if (classDoc.isIncluded()) {
+        filter.accept(classDoc);
+      }
+      stack.add(classDoc);
+    }
+    Set<String> expanded = new HashSet<String>();
+    while (!stack.isEmpty()) {
+      Type type = stack.remove(stack.size() - 1);
+      if (type instanceof TypeVariable) {
+        // type variables refer to themselves through their bounds, like E extends Enum<E>
+        if (!expanded.add(((TypeVariable) type).owner().qualifiedName() + "<" + type.typeName())) {
+          continue;
+        }
+        stack.addAll(Arrays.asList(((TypeVariable) type).bounds()));
+      } else if (type instanceof ParameterizedType) {
+        stack.addAll(Arrays.asList(((ParameterizedType) type).typeArguments()));
+      } else if (type instanceof WildcardType) {
+        stack.addAll(Arrays.asList(((WildcardType) type).extendsBounds()));
+        stack.addAll(Arrays.asList(((WildcardType) type).superBounds()));
+      }
+      ClassDoc classDoc = type.asClassDoc();
+      if (classDoc == null || !visited.add(classDoc)) {
+        continue;
+      }
+      classDoc.qualifiedName();
+      classDoc.isIncluded();
+      classDoc.modifierSpecifier();
+      classDoc.containingPackage();
+      classDoc.superclass();
+      classDoc.interfaces();
+      if (classDoc.containingClass() != null) {
+        stack.add(classDoc.containingClass());
+      }
+      if (classDoc.superclassType() != null) {
+        stack.add(classDoc.superclassType());
+      }
+      stack.addAll(Arrays.asList(classDoc.interfaceTypes()));
+    }
+  }
+
+  /**
+   * Decides whether the facts of the type passed are stale, without recursion, as the chains of declared
+   * super types can be very long. External types are followed through their entries, they are stale if one
+   * of their super types in the run is.
+   */
+  private void isStale(String name, Map<String, ClassDoc> classDocsByName, Set<String> changed,
+      Map<String, Boolean> stale) {
+    List<String> stack = new ArrayList<String>();
+    Set<String> pending = new HashSet<String>();
+    stack.add(name);
+    while (!stack.isEmpty()) {
+      String top = stack.get(stack.size() - 1);
+      if (stale.containsKey(top)) {
+        stack.remove(stack.size() - 1);
+        continue;
+      }
+      if (changed.contains(top)) {
+        stale.put(top, Boolean.TRUE);
+        continue;
+      }
+      String[] supertypes = entries.get(top).supertypes;
+      if (pending.add(top)) {
+        boolean ready = true;
+        for (String supertype : supertypes) {
+          if (entries.containsKey(supertype) && !stale.containsKey(supertype) && !pending.contains(supertype)) {
+            stack.add(supertype);
+            ready = false;
+          }
+        }
+        if (!ready) {
+          continue;
+        }
+      }
+      boolean result = false;
+      for (String supertype : supertypes) {
+        // a super type which left the run or entered it changes the facts as well
+        Entry entry = entries.get(supertype);
+        boolean inRun = classDocsByName.containsKey(supertype);
+        if (inRun != (entry != null && entry.file.length() > 0) || Boolean.TRUE.equals(stale.get(supertype))) {
+          result = true;
+        }
+      }
+      stale.put(top, Boolean.valueOf(result));
+      pending.remove(top);
+      stack.remove(stack.size() - 1);
+    }
+  }
+
+  /**
+   * Reads the facts of the type passed and remembers the super types it refers to.
+   */
+  private static Entry read(ClassDoc classDoc, boolean accepted, ClassTree tree, Map<String, ClassDoc> reached) {
+    Entry entry = new Entry();
+    entry.classDoc = classDoc;
+    entry.file = classDoc.isIncluded() ? path(classDoc) : "";
+
+    List<String> supertypes = new ArrayList<String>();
+    if (classDoc.superclass() != null) {
+      supertypes.add(classDoc.superclass().qualifiedName());
+    }
+    for (ClassDoc interfaceDoc : classDoc.interfaces()) {
+      supertypes.add(interfaceDoc.qualifiedName());
+    }
+    entry.supertypes = supertypes.toArray(new String[supertypes.size()]);
+
+    entry.accepted = accepted;
+    if (entry.accepted) {
+      if (classDoc.isInterface()) {
+        List<?> superInterfaces = tree.getVisibleSuperInterfaces(classDoc);
+        entry.superInterfaces = names(superInterfaces);
+        for (Object superInterface : superInterfaces) {
+          reached.put(((ClassDoc) superInterface).qualifiedName(), (ClassDoc) superInterface);
+        }
+      } else {
+        ClassDoc superclass = tree.getFirstVisibleSuperClassCD(classDoc);
+        if (superclass != null) {
+          entry.superclass = superclass.qualifiedName();
+          reached.put(entry.superclass, superclass);
+        }
+        entry.interfaces = names(tree.getAllInterfaces(classDoc));
+      }
+    }
+    return entry;
+  }
+
+  private static String path(ClassDoc classDoc) {
+    SourcePosition position = classDoc.position();
+    return position == null || position.file() == null ? "" : position.file().getAbsolutePath();
+  }
+
+  /**
+   * @return the SHA-1 hash of the file content in hex, <code>null</code> if the file cannot be read
+   */
+  private static String hash(String path) {
+    if (path.length() == 0) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      InputStream inputStream = new FileInputStream(path);
+      try {
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = inputStream.read(buffer)) > 0) {
+          digest.update(buffer, 0, count);
+        }
+      } finally {
+        inputStream.close();
+      }
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (IOException e) {
+      log.warn("Cannot hash " + path + ": " + e.getMessage());
+      return null;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String[] names(List<?> types) {
+    String[] names = new String[types.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = ((Type) types.get(i)).asClassDoc().qualifiedName();
+    }
+    return names;
+  }
+
+  private static String[] split(String value) {
+    return value.length() == 0 ? NONE : value.split(",");
+  }
+
+  private static String join(String[] values) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      result.append(values[i]);
+    }
+    return result.toString();
+  }
+}
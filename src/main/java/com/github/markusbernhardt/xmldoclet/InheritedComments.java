@@ -0,0 +1,253 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.ParamTag;
+import com.sun.javadoc.Tag;
+import com.sun.javadoc.ThrowsTag;
+import com.sun.tools.doclets.internal.toolkit.util.ImplementedMethods;
+
+/**
+ * Resolves the comments copied by {@inheritDoc} before the types of a run are parsed.
+ *
+ * <p>The types are ordered from the root super types down to the leaves, so the comment a method inherits is
+ * always rendered before the comment of the method inheriting it. The ancestor of every method and of every
+ * <code>@param</code>, <code>@return</code> and <code>@throws</code> tag is searched once, and no comment is
+ * rendered recursively through a chain of overriding methods.
+ */
+class InheritedComments {
+
+  private final static Logger log = LoggerFactory.getLogger(InheritedComments.class);
+
+  private final static String INHERIT_DOC = "@inheritDoc";
+
+  private final static Integer VISITING = Integer.valueOf(1);
+  private final static Integer VISITED = Integer.valueOf(2);
+
+  private final Parser parser;
+
+  /**
+   * Creates a new pass.
+   *
+   * @param parser
+   *            The parser receiving the ancestors and rendering the comments
+   */
+  InheritedComments(Parser parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Resolves the ancestors of all methods of the given types and renders their comments.
+   *
+   * <p>Only the comments copied by {@inheritDoc} are rendered here and kept by the parser, all others are
+   * rendered when they are used and not kept. Types outside the run are ordered but left to the taglet.
+   *
+   * @param classDocs
+   *            The types of the run
+   */
+  void resolve(ClassDoc[] classDocs) {
+    Map<ClassDoc, Boolean> included = new HashMap<ClassDoc, Boolean>();
+    for (ClassDoc classDoc : classDocs) {
+      included.put(classDoc, Boolean.TRUE);
+    }
+    List<ClassDoc> order = order(classDocs);
+
+    // All ancestors are known before the first comment is rendered and kept
+    for (ClassDoc classDoc : order) {
+      if (!included.containsKey(classDoc)) {
+        continue;
+      }
+
+      for (MethodDoc method : classDoc.methods(false)) {
+        if (inheritsDoc(method.inlineTags())) {
+          parser.getInheritedMethod(method);
+        }
+        for (Tag tag : method.tags()) {
+          if (inheritsDoc(tag.inlineTags())) {
+            parser.getInheritedTag(method, tag);
+          }
+        }
+      }
+    }
+
+    // The ancestors come first in the order, so their comments are rendered before they are copied
+    for (ClassDoc classDoc : order) {
+      if (!included.containsKey(classDoc)) {
+        continue;
+      }
+
+      for (MethodDoc method : classDoc.methods(false)) {
+        if (parser.isAncestor(method)) {
+          parser.parseComment(method);
+          parser.parseCommentBody(method);
+        }
+        for (Tag tag : method.tags()) {
+          if (parser.isAncestor(tag)) {
+            parser.parseComment(tag);
+            parser.parseCommentBody(tag);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Orders the given types and all their super types so that each type follows its super types.
+   *
+   * @param classDocs
+   *            The types to order
+   * @return the types and their super types, the roots first
+   */
+  static List<ClassDoc> order(ClassDoc[] classDocs) {
+    List<ClassDoc> order = new ArrayList<ClassDoc>();
+    Map<ClassDoc, Integer> states = new HashMap<ClassDoc, Integer>();
+    List<ClassDoc> stack = new ArrayList<ClassDoc>();
+    List<ClassDoc[]> supers = new ArrayList<ClassDoc[]>();
+    List<Integer> positions = new ArrayList<Integer>();
+
+    for (ClassDoc classDoc : classDocs) {
+      if (states.containsKey(classDoc)) {
+        continue;
+      }
+      states.put(classDoc, VISITING);
+      stack.add(classDoc);
+      supers.add(supertypes(classDoc));
+      positions.add(Integer.valueOf(0));
+
+      while (!stack.isEmpty()) {
+        int top = stack.size() - 1;
+        ClassDoc[] next = supers.get(top);
+        int position = positions.get(top).intValue();
+        if (position == next.length) {
+          states.put(stack.get(top), VISITED);
+          order.add(stack.remove(top));
+          supers.remove(top);
+          positions.remove(top);
+          continue;
+        }
+        positions.set(top, Integer.valueOf(position + 1));
+
+        ClassDoc superDoc = next[position];
+        Integer state = states.get(superDoc);
+        if (state == VISITING) {
+          log.warn("Cyclic inheritance of " + superDoc.qualifiedName() + ", inherited comments may be incomplete");
+        } else if (state == null) {
+          states.put(superDoc, VISITING);
+          stack.add(superDoc);
+          supers.add(supertypes(superDoc));
+          positions.add(Integer.valueOf(0));
+        }
+      }
+    }
+
+    return order;
+  }
+
+  private static ClassDoc[] supertypes(ClassDoc classDoc) {
+    ClassDoc superclass = classDoc.superclass();
+    ClassDoc[] interfaces = classDoc.interfaces();
+    if (superclass == null) {
+      return interfaces;
+    }
+
+    ClassDoc[] supertypes = new ClassDoc[interfaces.length + 1];
+    supertypes[0] = superclass;
+    System.arraycopy(interfaces, 0, supertypes, 1, interfaces.length);
+    return supertypes;
+  }
+
+  private static boolean inheritsDoc(Tag[] inlineTags) {
+    for (Tag tag : inlineTags) {
+      if (tag.name().equals(INHERIT_DOC)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the method whose main description the given method inherits.
+   *
+   * @param method
+   *            The inheriting method
+   * @return the overridden or implemented method with a comment, <code>null</code> if there is none
+   */
+  static MethodDoc findMethod(MethodDoc method) {
+    MethodDoc overriddenMethod = method.overriddenMethod();
+    if (overriddenMethod != null && overriddenMethod.inlineTags().length > 0) {
+      return overriddenMethod;
+    }
+
+    for (MethodDoc implementedMethod : new ImplementedMethods(method, null).build(false)) {
+      if (implementedMethod.inlineTags().length > 0) {
+        return implementedMethod;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Finds the tag whose text the given tag of a method inherits.
+   *
+   * <p>A <code>@param</code> tag inherits from the tag of the same parameter, a <code>@throws</code> tag from the
+   * tag of the same exception, all other tags from the first tag of the same kind.
+   *
+   * @param method
+   *            The inheriting method
+   * @param tag
+   *            The inheriting tag
+   * @return the matching tag of the overridden or an implemented method, <code>null</code> if there is none
+   */
+  static Tag findTag(MethodDoc method, Tag tag) {
+    MethodDoc overriddenMethod = method.overriddenMethod();
+    if (overriddenMethod != null) {
+      Tag overriddenTag = matchTag(overriddenMethod, tag);
+      if (overriddenTag != null) {
+        return overriddenTag;
+      }
+    }
+
+    for (MethodDoc implementedMethod : new ImplementedMethods(method, null).build(false)) {
+      Tag implementedTag = matchTag(implementedMethod, tag);
+      if (implementedTag != null) {
+        return implementedTag;
+      }
+    }
+
+    return null;
+  }
+
+  private static Tag matchTag(MethodDoc method, Tag tag) {
+    Tag[] tags = method.tags(tag.kind());
+    if (tags.length == 0) {
+      return null;
+    }
+
+    if (tag instanceof ThrowsTag) {
+      for (Tag candidate : tags) {
+        if (((ThrowsTag) tag).exceptionName().equals(((ThrowsTag) candidate).exceptionName())) {
+          return candidate;
+        }
+      }
+      return null;
+    } else if (tag instanceof ParamTag) {
+      for (Tag candidate : tags) {
+        if (((ParamTag) tag).parameterName().equals(((ParamTag) candidate).parameterName())) {
+          return candidate;
+        }
+      }
+      return null;
+    }
+
+    return tags[0];
+  }
+}
@@ -20,6 +20,7 @@ import com.sun.javadoc.Tag;
 import com.sun.javadoc.SeeTag;
 import com.sun.javadoc.ParamTag;
 import com.sun.javadoc.ThrowsTag;
+import java.util.Map;
 import java.util.StringTokenizer;
 import com.github.markusbernhardt.xmldoclet.xjc.Link;
 import java.io.StringWriter;
@@ -30,8 +31,6 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
 
-import com.sun.tools.doclets.internal.toolkit.util.ImplementedMethods;
-
 /**
  * A collection of taglets to support the standard javadoc inline tags.
  *
@@ -41,7 +40,7 @@ import com.sun.tools.doclets.internal.toolkit.util.ImplementedMethods;
  * @author Johan Johansson
  * @version 24 May 2013
  */
-public enum InlineTag implements Taglet {
+public enum InlineTag implements AppendingTaglet {
 
   /**
    * Equivalent to "@literal" but wrapping the content in {@literal <code>}.
@@ -56,7 +55,14 @@ public enum InlineTag implements Taglet {
 
     @Override
     public String getOutput(Parser parser, Tag tag) {
-      return "<code>"+tag.text()+"</code>";
+      return "<code>"+text(parser, tag.text())+"</code>";
+    }
+
+    @Override
+    public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment) {
+      comment.append("<code>");
+      appendText(parser, tag.text(), comment);
+      comment.append("</code>");
     }
 
   },
@@ -106,7 +112,8 @@ public enum InlineTag implements Taglet {
           return "";
       }
 
-      MethodDoc overridenMethod = retrieveOverridenMethod((MethodDoc) tag.holder());
+      // The ancestors of the run are resolved up front, others when they are first copied
+      MethodDoc overridenMethod = parser.getInheritedMethod((MethodDoc) tag.holder());
 
       if (overridenMethod == null) {
         return "";
@@ -121,7 +128,7 @@ public enum InlineTag implements Taglet {
           return "";
       }
 
-      Tag overridenTag = retrieveOverridenTag((MethodDoc) tag.holder(), parent);
+      Tag overridenTag = parser.getInheritedTag((MethodDoc) tag.holder(), parent);
 
       if (overridenTag == null) {
         return "";
@@ -129,83 +136,6 @@ public enum InlineTag implements Taglet {
 
       return parser.parseComment(overridenTag);
     }
-
-    private MethodDoc retrieveOverridenMethod(MethodDoc doc) {
-      MethodDoc overridenMethod;
-
-      overridenMethod = doc.overriddenMethod();
-
-      if (overridenMethod != null && overridenMethod.inlineTags().length > 0) {
-        return overridenMethod;
-      }
-
-      MethodDoc[] implementedMethods = (new ImplementedMethods(doc, null)).build(false);
-
-      for (int i = 0; i < implementedMethods.length; i++) {
-        overridenMethod = implementedMethods[i];
-
-        if (overridenMethod.inlineTags().length > 0) {
-          return overridenMethod;
-        }
-      }
-
-      return null;
-    }
-
-    private Tag retrieveOverridenTag(MethodDoc doc, Tag tag) {
-      Tag[] overridenTags;
-      MethodDoc overridenMethod;
-
-      overridenMethod = doc.overriddenMethod();
-
-      if (overridenMethod != null) {
-        overridenTags = overridenMethod.tags(tag.kind());
-
-        if (overridenTags.length > 0) {
-          if (tag instanceof ThrowsTag) {
-            for (int i = 0; i < overridenTags.length; i++) {
-              if (((ThrowsTag) tag).exceptionName() == ((ThrowsTag) overridenTags[i]).exceptionName()) {
-                return overridenTags[i];
-              }
-            }
-          } else if (tag instanceof ParamTag) {
-            for (int i = 0; i < overridenTags.length; i++) {
-              if (((ParamTag) tag).parameterName() == ((ParamTag) overridenTags[i]).parameterName()) {
-                return overridenTags[i];
-              }
-            }
-          } else {
-            return overridenTags[0];
-          }
-        }
-      }
-
-      MethodDoc[] implementedMethods = (new ImplementedMethods(doc, null)).build(false);
-
-      for (int i = 0; i < implementedMethods.length; i++) {
-        overridenTags = implementedMethods[i].tags(tag.kind());
-
-        if (overridenTags.length > 0) {
-          if (tag instanceof ThrowsTag) {
-            for (int j = 0; j < overridenTags.length; j++) {
-              if (((ThrowsTag) tag).exceptionName() == ((ThrowsTag) overridenTags[j]).exceptionName()) {
-                return overridenTags[j];
-              }
-            }
-          } else if (tag instanceof ParamTag) {
-            for (int j = 0; j < overridenTags.length; j++) {
-              if (((ParamTag) tag).parameterName() == ((ParamTag) overridenTags[j]).parameterName()) {
-                return overridenTags[j];
-              }
-            }
-          } else {
-            return overridenTags[0];
-          }
-        }
-      }
-
-      return null;
-    }
   },
 
   /**
@@ -230,24 +160,18 @@ public enum InlineTag implements Taglet {
           return "";
       }
 
-      return serializeLink(parser.parseLink((SeeTag) tag));
+      String fragment = serializeLink(parser, parser.parseLink((SeeTag) tag));
+      return fragment != null ? "<code>" + fragment + "</code>" : "";
     }
 
-    private String serializeLink(Link linkNode) {
-      StringWriter writer = new StringWriter();
-
-      try {
-        JAXBContext context  = JAXBContext.newInstance(Link.class);
-        JAXBElement<Link> ln = new JAXBElement<Link>(new QName("link"), Link.class, linkNode);
-        Marshaller m = context.createMarshaller();
-        m.setProperty("jaxb.fragment", true);
-        m.setProperty("jaxb.formatted.output", false);
-        m.marshal(ln, writer);
-      } catch (JAXBException e) {
-        return "";
+    @Override
+    public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment) {
+      if (tag instanceof SeeTag) {
+        String fragment = serializeLink(parser, parser.parseLink((SeeTag) tag));
+        if (fragment != null) {
+          comment.append("<code>").append(fragment).append("</code>");
+        }
       }
-
-      return "<code>" + writer.toString() + "</code>";
     }
 
   },
@@ -267,24 +191,18 @@ public enum InlineTag implements Taglet {
           return "";
       }
 
-      return serializeLink(parser.parseLink((SeeTag) tag));
+      String fragment = serializeLink(parser, parser.parseLink((SeeTag) tag));
+      return fragment != null ? fragment : "";
     }
 
-    private String serializeLink(Link linkNode) {
-      StringWriter writer = new StringWriter();
-
-      try {
-        JAXBContext context  = JAXBContext.newInstance(Link.class);
-        JAXBElement<Link> ln = new JAXBElement<Link>(new QName("link"), Link.class, linkNode);
-        Marshaller m = context.createMarshaller();
-        m.setProperty("jaxb.fragment", true);
-        m.setProperty("jaxb.formatted.output", false);
-        m.marshal(ln, writer);
-      } catch (JAXBException e) {
-        return "";
+    @Override
+    public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment) {
+      if (tag instanceof SeeTag) {
+        String fragment = serializeLink(parser, parser.parseLink((SeeTag) tag));
+        if (fragment != null) {
+          comment.append(fragment);
+        }
       }
-
-      return writer.toString();
     }
 
   },
@@ -300,7 +218,12 @@ public enum InlineTag implements Taglet {
 
     @Override
     public String getOutput(Parser parser, Tag tag) {
-      return tag.text();
+      return text(parser, tag.text());
+    }
+
+    @Override
+    public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment) {
+      appendText(parser, tag.text(), comment);
     }
 
   },
@@ -318,8 +241,16 @@ public enum InlineTag implements Taglet {
 
     @Override
     public String getOutput(Parser parser, Tag tag) {
-      return "";
-      // return toValueString(tag);
+      String value = parser.getConstants().getValue(tag);
+      return value != null ? text(parser, value) : "";
+    }
+
+    @Override
+    public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment) {
+      String value = parser.getConstants().getValue(tag);
+      if (value != null) {
+        appendText(parser, value, comment);
+      }
     }
 
   };
@@ -351,6 +282,79 @@ public enum InlineTag implements Taglet {
     return getOutput(parser, tag);
   }
 
+  /**
+   * Appends the output of {@link #getOutput(Parser, Tag, Tag)}, tags rendering a string of their own append it
+   * directly instead.
+   */
+  @Override
+  public void appendOutput(Parser parser, Tag tag, Tag parent, StringBuilder comment) {
+    comment.append(parent != null ? getOutput(parser, tag, parent) : getOutput(parser, tag));
+  }
+
+  /**
+   * Returns text to be shown as it is, escaped if the comments are normalized to XHTML.
+   *
+   * @param parser  The parser of the run.
+   * @param text    The text.
+   * @return the text, escaped for the normalizer if it is on
+   */
+  private static String text(Parser parser, String text) {
+    return parser.isXhtml() ? XhtmlNormalizer.escape(text) : text;
+  }
+
+  private static void appendText(Parser parser, String text, StringBuilder comment) {
+    if (parser.isXhtml()) {
+      XhtmlNormalizer.escape(text, comment);
+    } else {
+      comment.append(text);
+    }
+  }
+
+  /**
+   * The context serializing the link nodes of a thread, created on first use.
+   */
+  private final static ThreadLocal<JAXBContext> linkContexts = new ThreadLocal<JAXBContext>();
+
+  /**
+   * Serializes a link node once per run, as link nodes are shared by all tags with the same target.
+   *
+   * @param parser    The parser of the run.
+   * @param linkNode  The link node.
+   * @return the link element, <code>null</code> if it cannot be serialized
+   */
+  private static String serializeLink(Parser parser, Link linkNode) {
+    Map<Link, String> fragments = parser.getLinkFragments();
+    String fragment = fragments.get(linkNode);
+    if (fragment != null) {
+      return fragment;
+    }
+
+    StringWriter writer = new StringWriter();
+
+    try {
+      JAXBElement<Link> ln = new JAXBElement<Link>(new QName("link"), Link.class, linkNode);
+      Marshaller m = getLinkContext().createMarshaller();
+      m.setProperty("jaxb.fragment", true);
+      m.setProperty("jaxb.formatted.output", false);
+      m.marshal(ln, writer);
+    } catch (JAXBException e) {
+      return null;
+    }
+
+    fragment = writer.toString();
+    fragments.put(linkNode, fragment);
+    return fragment;
+  }
+
+  private static JAXBContext getLinkContext() throws JAXBException {
+    JAXBContext linkContext = linkContexts.get();
+    if (linkContext == null) {
+      linkContext = JAXBContext.newInstance(Link.class);
+      linkContexts.set(linkContext);
+    }
+    return linkContext;
+  }
+
   // Utility methods for links
   // ----------------------------------------------------------------------------------------------
   //
@@ -565,88 +569,4 @@ public enum InlineTag implements Taglet {
   //   html.append('>').append(XMLNode.encodeElement(label)).append("</a>");
   //   return html.toString();
   // }
-  //
-  // /**
-  //  * Returns the constant value string for a value tag.
-  //  *
-  //  * @param tag the value tag to process.
-  //  * @return the corresponding HTML
-  //  */
-  // public static String toValueString(Tag tag) {
-  //   String text = tag.text();
-  //
-  //   if (text == null || text.length() == 0) {
-  //     // extract constant value of this field
-  //     Doc holder = tag.holder();
-  //
-  //     if (holder != null && holder instanceof FieldDoc) {
-  //       return ((FieldDoc)holder).constantValueExpression();
-  //     }
-  //   }
-  //
-  //   Doc member = getMemberFromString(text, "field", tag);
-  //
-  //   if (member != null && member instanceof FieldDoc) {
-  //     FieldDoc field = (FieldDoc)member;
-  //     String value = field.constantValueExpression();
-  //     return toLinkString(text, value, "link", "member", field.containingPackage().name(), field.containingClass().name(), field.name());
-  //   }
-  //
-  //   return "";
-  // }
-  //
-  // /**
-  //  * Parses a reference to a qualified or partially qualified type name and returns the Doc for it.
-  //  * Does not support unqualified nested class types.
-  //  * E.g. #myField, SomeClass#myField, some.package.SomeClass#myField, some.package.SomeClass.NestedClass#myField
-  //  *
-  //  * @param  name type name
-  //  * @param memberType field, method, etc
-  //  * @param tag the containing tag
-  //  * @return      [description]
-  //  */
-  // public static Doc getMemberFromString(String name, String memberType, Tag tag) {
-  //   StringTokenizer st = new StringTokenizer(name, "#");
-  //   String memberName = null;
-  //   ClassDoc cd = null;
-  //   if (st.countTokens() == 1) {
-  //       //Case 2:  @value in same class.
-  //       Doc holder = tag.holder();
-  //       if (holder instanceof MemberDoc) {
-  //           cd = ((MemberDoc) holder).containingClass();
-  //       } else if (holder instanceof ClassDoc) {
-  //           cd = (ClassDoc) holder;
-  //       }
-  //       memberName = st.nextToken();
-  //   } else {
-  //       //Case 3: @value in different class.
-  //
-  //       // might be fully qualified or not (package or no package)
-  //       String className = st.nextToken();
-  //
-  //       // check for fq name else add local package
-  //       if (className.indexOf('.') == -1) {
-  //         // NOTE: doesn't work with unqualified nested classes (duh)
-  //         Doc holder = tag.holder();
-  //
-  //         if (holder instanceof ProgramElementDoc) {
-  //           className = ((ProgramElementDoc)holder).containingPackage().name() + "." + className;
-  //         }
-  //       }
-  //
-  //       cd = XMLDoclet.root.classNamed(className);
-  //       memberName = st.nextToken();
-  //   }
-  //
-  //   if (memberType.equals("field")) {
-  //     FieldDoc[] fields = cd.fields();
-  //     for (int i = 0; i < fields.length; i++) {
-  //         if (fields[i].name().equals(memberName)) {
-  //             return fields[i];
-  //         }
-  //     }
-  //   }
-  //
-  //   return null;
-  // }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Keeps the finished packages of a run in order and moves them to temporary files once the used heap
+ * crosses a threshold.
+ *
+ * <p>The packages are streamed back one by one when the output file is written, so at most one spilled
+ * package is held in memory again at any time.
+ */
+public class PackageStore {
+
+  private final static Logger log = LoggerFactory.getLogger(PackageStore.class);
+
+  private final static QName PACKAGE = new QName("package");
+
+  /**
+   * The used heap in bytes above which packages are spilled.
+   */
+  private final long threshold;
+
+  /**
+   * The packages in output order, either a {@link Package} or the {@link File} it was spilled to.
+   */
+  private final List<Object> entries = new ArrayList<Object>();
+
+  private final JAXBContext context;
+
+  /**
+   * Shares the comments of the packages as they are written if set.
+   */
+  private SharedComments sharedComments;
+
+  /**
+   * Creates a new store.
+   *
+   * @param thresholdMegabytes
+   *            The used heap in megabytes above which finished packages are written to disk
+   */
+  public PackageStore(long thresholdMegabytes) throws JAXBException {
+    this.threshold = thresholdMegabytes * 1024 * 1024;
+    this.context = JAXBContext.newInstance(Root.class);
+  }
+
+  /**
+   * Adds a finished package. If the used heap is above the threshold, all packages still held in memory
+   * are spilled. Packages which cannot be spilled stay in memory.
+   *
+   * @param packageNode The package, it must not be changed afterwards.
+   */
+  public void add(Package packageNode) {
+    entries.add(packageNode);
+
+    Runtime runtime = Runtime.getRuntime();
+    if (runtime.totalMemory() - runtime.freeMemory() > threshold) {
+      try {
+        spill();
+      } catch (JAXBException e) {
+        log.error(e.getMessage(), e);
+      } catch (IOException e) {
+        log.error(e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * @return the number of packages written to temporary files so far
+   */
+  public int getSpilledCount() {
+    int count = 0;
+    for (Object entry : entries) {
+      if (entry instanceof File) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void spill() throws JAXBException, IOException {
+    Marshaller marshaller = context.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+
+    for (int i = 0; i < entries.size(); i++) {
+      if (!(entries.get(i) instanceof Package)) {
+        continue;
+      }
+      Package packageNode = (Package) entries.get(i);
+
+      File file = File.createTempFile("xml-doclet-", ".xml");
+      file.deleteOnExit();
+
+      OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+      try {
+        marshaller.marshal(new JAXBElement<Package>(PACKAGE, Package.class, packageNode), outputStream);
+      } finally {
+        outputStream.close();
+      }
+
+      log.debug("Spilled package " + packageNode.getName() + " to " + file);
+      entries.set(i, file);
+    }
+  }
+
+  /**
+   * Shares the comments of every package when it is written, and writes the shared comments after the
+   * packages. All packages must have been counted.
+   *
+   * @param sharedComments
+   *            The counted comments of all packages
+   */
+  public void setSharedComments(SharedComments sharedComments) {
+    this.sharedComments = sharedComments;
+  }
+
+  /**
+   * Writes all packages wrapped in a root element, reading spilled packages back one at a time. The document
+   * is laid out like the one of a normal run, and the shared comments follow the packages. Temporary files are
+   * deleted once they are written.
+   *
+   * @param outputStream
+   *            The stream to write to
+   * @param encoding
+   *            The encoding of the output
+   */
+  public void write(OutputStream outputStream, String encoding) throws JAXBException, IOException {
+    Marshaller marshaller = context.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+    marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+
+    try {
+      marshaller.marshal(new StreamedRoot(), outputStream);
+    } catch (IllegalStateException e) {
+      if (e.getCause() instanceof JAXBException) {
+        throw (JAXBException) e.getCause();
+      }
+      throw e;
+    } finally {
+      for (Object entry : entries) {
+        if (entry instanceof File) {
+          ((File) entry).delete();
+        }
+      }
+      entries.clear();
+    }
+  }
+
+  /**
+   * A root node marshalled like any other, whose packages are read back while they are marshalled. Its
+   * shared comments are filled while the packages are shared, before they are marshalled themselves.
+   */
+  private class StreamedRoot extends Root {
+
+    StreamedRoot() throws JAXBException {
+      _package = new StreamedPackages();
+      if (sharedComments != null) {
+        sharedComment = sharedComments.getSharedComments();
+      }
+    }
+  }
+
+  /**
+   * The packages of the store in output order. Each package is read back and shared when it is first got,
+   * and dropped from the store once the next one is got.
+   */
+  private class StreamedPackages extends AbstractList<Package> {
+
+    private final Unmarshaller unmarshaller;
+
+    private int index = -1;
+
+    private Package packageNode;
+
+    StreamedPackages() throws JAXBException {
+      this.unmarshaller = context.createUnmarshaller();
+    }
+
+    @Override
+    public Package get(int i) {
+      if (i == index) {
+        return packageNode;
+      }
+
+      Object entry = entries.get(i);
+      if (entry instanceof File) {
+        File file = (File) entry;
+        try {
+          packageNode = unmarshaller.unmarshal(new StreamSource(file), Package.class).getValue();
+        } catch (JAXBException e) {
+          throw new IllegalStateException(e);
+        }
+        file.delete();
+      } else {
+        packageNode = (Package) entry;
+      }
+      entries.set(i, null);
+      index = i;
+      if (sharedComments != null) {
+        sharedComments.share(packageNode);
+      }
+      return packageNode;
+    }
+
+    @Override
+    public int size() {
+      return entries.size();
+    }
+  }
+}
@@ -1,13 +1,23 @@
 package com.github.markusbernhardt.xmldoclet;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import java.lang.reflect.Modifier;
 import java.net.URLEncoder;
+import javax.xml.bind.JAXBElement;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
 import com.github.markusbernhardt.xmldoclet.xjc.AnnotationElement;
 import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.CommentBody;
 import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
 import com.github.markusbernhardt.xmldoclet.xjc.Enum;
 import com.github.markusbernhardt.xmldoclet.xjc.EnumValue;
@@ -30,6 +41,7 @@ import com.github.markusbernhardt.xmldoclet.xjc.Generic;
 import com.github.markusbernhardt.xmldoclet.xjc.Wildcard;
 import com.github.markusbernhardt.xmldoclet.xjc.Link;
 import com.github.markusbernhardt.xmldoclet.xjc.Return;
+import com.github.markusbernhardt.xmldoclet.xjc.TagletOutput;
 import com.github.markusbernhardt.xmldoclet.xjc.Throws;
 import com.sun.javadoc.AnnotationDesc;
 import com.sun.javadoc.AnnotationTypeDoc;
@@ -66,53 +78,399 @@ public class Parser {
   private String docRoot;
 
   /**
-   * The taglets loaded by this doclet.
+   * Deduplicates the attribute values of the documentation model for this run.
    */
-  private Map<String, Taglet> taglets = new HashMap<String, Taglet>();
+  private final StringPool strings = new StringPool();
+
+  /**
+   * Deduplicates the rendered comments of this run, which repeat on overloads and generated code. When packages
+   * are spilled, only the comments of one package are pooled.
+   */
+  private final StringPool comments = new StringPool();
+
+  /**
+   * The constant values of the fields of this run.
+   */
+  private final ConstantIndex constants = new ConstantIndex();
+
+  /**
+   * Decides which packages, types and members are parsed at all.
+   */
+  private DocFilter filter = new DocFilter();
+
+  /**
+   * Emit the structural model only, without any comment, tag or link text.
+   */
+  private boolean skipComments;
+  private boolean skipHierarchy;
+
+  /**
+   * Emit comments as structured body nodes instead of strings.
+   */
+  private boolean structuredComments;
+
+  /**
+   * Turns the comments into well-formed XHTML if set.
+   */
+  private boolean xhtml;
+
+  /**
+   * The normalizer of the comments of a thread, as a normalizer keeps the open elements of the comment at hand.
+   */
+  private final ThreadLocal<XhtmlNormalizer> xhtmlNormalizers = new ThreadLocal<XhtmlNormalizer>() {
+    @Override
+    protected XhtmlNormalizer initialValue() {
+      return new XhtmlNormalizer();
+    }
+  };
+
+  /**
+   * Counts the comments of finished packages to emit each comment occurring more than once only once if set.
+   */
+  private SharedComments sharedComments;
+
+  /**
+   * Receives the finished packages instead of the root node if set.
+   */
+  private PackageStore packageStore;
+
+  /**
+   * Provides the class hierarchy of unchanged types if set.
+   */
+  private HierarchyIndex hierarchyIndex;
+
+  /**
+   * The number of threads reading the class hierarchy.
+   */
+  private int hierarchyThreads = 1;
+
+  /**
+   * The class hierarchy of the last run.
+   */
+  private ClassTree classTree;
+
+  /**
+   * The standard taglets and those discovered on the doclet path.
+   */
+  private final TagletTable taglets = new TagletTable(loadTaglets());
+
+  /**
+   * The buffers the comments are rendered into, reused for all comments of a thread.
+   */
+  private final ThreadLocal<CommentBuffers> commentBuffers = new ThreadLocal<CommentBuffers>() {
+    @Override
+    protected CommentBuffers initialValue() {
+      return new CommentBuffers();
+    }
+  };
+
+  /**
+   * The link nodes built in this run, by target and text. Like the other caches filled by the taglets, it is
+   * concurrent as taglets may be called by several threads at once.
+   */
+  private final ConcurrentMap<LinkKey, Link> links = new ConcurrentHashMap<LinkKey, Link>();
+
+  /**
+   * The serialized link nodes used in comments.
+   */
+  private final Map<Link, String> linkFragments = new ConcurrentHashMap<Link, String>();
+
+  /**
+   * The methods and method tags whose comments are copied by {@inheritDoc}. Only their comments are cached.
+   */
+  private final Set<Object> ancestors = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+  /**
+   * The rendered comments of the ancestors. A comment copied by {@inheritDoc} is rendered once per run, however
+   * many methods inherit it.
+   */
+  private final Map<Object, String> methodComments = new ConcurrentHashMap<Object, String>();
+
+  /**
+   * The structured comments of the ancestors, shared by all methods inheriting them.
+   */
+  private final Map<Object, CommentBody> methodBodies = new ConcurrentHashMap<Object, CommentBody>();
+
+  /**
+   * The method each method inherits its comment from, the method itself if there is none.
+   */
+  private final Map<MethodDoc, MethodDoc> inheritedMethods = new ConcurrentHashMap<MethodDoc, MethodDoc>();
+
+  /**
+   * The tag each method tag inherits its comment from, the tag itself if there is none.
+   */
+  private final Map<Tag, Tag> inheritedTags = new ConcurrentHashMap<Tag, Tag>();
 
   /**
    * Creates new options.
    */
   public Parser(String docRoot) {
     this.docRoot = docRoot;
-    // Load the standard taglets
-    for (InlineTag t : InlineTag.values()) {
-      taglets.put(t.getName(), t);
+  }
+
+  /**
+   * Loads the standard taglets followed by the taglets registered as services, so that a registered taglet
+   * replaces the standard one of the same name.
+   */
+  private static List<Taglet> loadTaglets() {
+    List<Taglet> taglets = new ArrayList<Taglet>(Arrays.asList(InlineTag.values()));
+    Iterator<Taglet> services = ServiceLoader.load(Taglet.class, Taglet.class.getClassLoader()).iterator();
+    while (true) {
+      try {
+        if (!services.hasNext()) {
+          break;
+        }
+        Taglet taglet = services.next();
+        log.info("Loaded taglet " + taglet.getName() + " from " + taglet.getClass().getName());
+        taglets.add(taglet);
+      } catch (ServiceConfigurationError e) {
+        log.warn("Skipping taglet: " + e.getMessage());
+      }
     }
+    return taglets;
   }
 
   public String getDocRoot() {
     return docRoot;
   }
 
+  public DocFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * Restricts parsing to the packages, types and members accepted by the given filter.
+   *
+   * @param filter The filter to apply, checked before any work is done for an element.
+   */
+  public void setFilter(DocFilter filter) {
+    this.filter = filter;
+  }
+
+  public boolean isStructuredComments() {
+    return structuredComments;
+  }
+
+  /**
+   * Emits each comment as a body of text, code, literal, value, link and inherited nodes instead of a single
+   * string, so that consumers do not need to parse the comment again.
+   *
+   * @param structuredComments <code>true</code> to emit structured comments
+   */
+  public void setStructuredComments(boolean structuredComments) {
+    this.structuredComments = structuredComments;
+  }
+
+  public boolean isXhtml() {
+    return xhtml;
+  }
+
+  /**
+   * Makes the HTML of every comment string well-formed XHTML, closing open elements and escaping stray markup.
+   *
+   * @param xhtml <code>true</code> to normalize the comments
+   */
+  public void setXhtml(boolean xhtml) {
+    this.xhtml = xhtml;
+  }
+
+  public boolean isSharedComments() {
+    return sharedComments != null;
+  }
+
+  /**
+   * Emits each comment occurring more than once only once after all packages, and refers to it from the nodes
+   * holding it.
+   *
+   * @param sharedComments <code>true</code> to share the comments
+   */
+  public void setSharedComments(boolean sharedComments) {
+    this.sharedComments = sharedComments ? new SharedComments() : null;
+  }
+
+  public boolean isSkipComments() {
+    return skipComments;
+  }
+
+  /**
+   * Switches to the skeleton mode. Types, members, generics, throws and modifiers are still parsed, but no
+   * comment is rendered and no block tag is read.
+   *
+   * @param skipComments <code>true</code> to skip all comments
+   */
+  public void setSkipComments(boolean skipComments) {
+    this.skipComments = skipComments;
+  }
+
+  public boolean isSkipHierarchy() {
+    return skipHierarchy;
+  }
+
+  /**
+   * Leaves out the child and implementation lists. No class hierarchy is computed at all then.
+   *
+   * @param skipHierarchy <code>true</code> to skip the class hierarchy
+   */
+  public void setSkipHierarchy(boolean skipHierarchy) {
+    this.skipHierarchy = skipHierarchy;
+  }
+
+  public HierarchyIndex getHierarchyIndex() {
+    return hierarchyIndex;
+  }
+
+  /**
+   * Takes the class hierarchy from the given index, reading only the types whose sources changed since the
+   * index was written. The index is brought up to date, saving it is left to the caller.
+   *
+   * @param hierarchyIndex The loaded index
+   */
+  public void setHierarchyIndex(HierarchyIndex hierarchyIndex) {
+    this.hierarchyIndex = hierarchyIndex;
+  }
+
+  public int getHierarchyThreads() {
+    return hierarchyThreads;
+  }
+
+  /**
+   * Reads the facts of the class hierarchy on the given number of threads. The types reached from the run
+   * are completed on the calling thread first, the tree is the same as with one thread.
+   *
+   * @param hierarchyThreads The number of threads, 1 to read the hierarchy on the calling thread
+   */
+  public void setHierarchyThreads(int hierarchyThreads) {
+    this.hierarchyThreads = hierarchyThreads;
+  }
+
+  /**
+   * @return the class hierarchy of the last call to {@link #parseRootDoc(RootDoc)}, <code>null</code> if it
+   *         was skipped
+   */
+  public ClassTree getClassTree() {
+    return classTree;
+  }
+
+  public PackageStore getPackageStore() {
+    return packageStore;
+  }
+
+  /**
+   * Hands every finished package to the given store instead of adding it to the root node, so that it can
+   * be moved out of the heap.
+   *
+   * @param packageStore The store, or <code>null</code> to keep all packages in the root node
+   */
+  public void setPackageStore(PackageStore packageStore) {
+    this.packageStore = packageStore;
+  }
+
   /**
    * The entry point into parsing the javadoc.
    * 
+   * <p>If a {@link PackageStore} is set, the packages are handed to the store one by one as soon as they are
+   * finished, and the returned root node stays empty.
+   *
    * @param rootDoc
    *            The RootDoc intstance obtained via the doclet API
    * @return The root node, containing everything parsed from javadoc doclet
    */
   public Root parseRootDoc(RootDoc rootDoc) {
     Root rootNode  = objectFactory.createRoot();
-    ClassTree tree = new ClassTree(rootDoc);
 
+    // Group the classes by package, so that each package is finished before the next one is started
+    Map<String, List<ClassDoc>> classDocsByPackage = new LinkedHashMap<String, List<ClassDoc>>();
+    List<ClassDoc> classDocs = new ArrayList<ClassDoc>();
     for (ClassDoc classDoc : rootDoc.classes()) {
-      PackageDoc packageDoc = classDoc.containingPackage();
+      if (filter.accept(classDoc)) {
+        String packageName = classDoc.containingPackage().name();
+        List<ClassDoc> packageClassDocs = classDocsByPackage.get(packageName);
+        if (packageClassDocs == null) {
+          packageClassDocs = new ArrayList<ClassDoc>();
+          classDocsByPackage.put(packageName, packageClassDocs);
+        }
+        packageClassDocs.add(classDoc);
+        classDocs.add(classDoc);
+      }
+    }
+
+    // The tree computes its parts on first use
+    ClassTree tree = skipHierarchy ? null : new ClassTree(classDocs.toArray(new ClassDoc[classDocs.size()]), filter);
+    HierarchyIndex index = hierarchyIndex;
+    if (index == null && hierarchyThreads > 1) {
+      index = new HierarchyIndex(null, null);
+    }
+    if (tree != null && index != null) {
+      index.update(rootDoc.classes(), filter, hierarchyThreads);
+      tree.setIndex(index);
+    }
+    classTree = tree;
+    constants.add(rootDoc.classes());
+
+    // Inherited comments are resolved from the root types down, before any of them is copied
+    if (!skipComments) {
+      new InheritedComments(this).resolve(classDocs.toArray(new ClassDoc[classDocs.size()]));
+    }
+
+    for (List<ClassDoc> packageClassDocs : classDocsByPackage.values()) {
+      PackageDoc packageDoc = packageClassDocs.get(0).containingPackage();
+      Package packageNode = parsePackage(packageDoc);
+
+      for (ClassDoc classDoc : packageClassDocs) {
+        parseClassDoc(classDoc, packageNode, tree);
+      }
 
-      Package packageNode = packages.get(packageDoc.name());
-      if (packageNode == null) {
-        packageNode = parsePackage(packageDoc);
+      if (sharedComments != null) {
+        sharedComments.count(packageNode);
+      }
+
+      if (packageStore != null) {
+        packageStore.add(packageNode);
+        // The pools would keep the text of spilled packages reachable, they only pool within a package
+        strings.clear();
+        comments.clear();
+        links.clear();
+        linkFragments.clear();
+      } else {
         packages.put(packageDoc.name(), packageNode);
         rootNode.getPackage().add(packageNode);
       }
+    }
+
+    // Only now is it known which comments occur more than once
+    if (sharedComments != null) {
+      if (packageStore != null) {
+        packageStore.setSharedComments(sharedComments);
+      } else {
+        for (Package packageNode : rootNode.getPackage()) {
+          sharedComments.share(packageNode);
+        }
+        rootNode.getSharedComment().addAll(sharedComments.getSharedComments());
+      }
+    }
 
-      if (classDoc.isAnnotationType()) {
-        packageNode.getAnnotation().add(parseAnnotationTypeDoc(classDoc));
-      } else if (classDoc.isEnum()) {
-        packageNode.getEnum().add(parseEnum(classDoc));
-      } else if (classDoc.isInterface()) {
-        Interface interfaceNode = parseInterface(classDoc);
+    return rootNode;
+  }
 
+  /**
+   * Parses a type into the given package node.
+   *
+   * @param classDoc
+   *            The type to parse
+   * @param packageNode
+   *            The node of the containing package
+   * @param tree
+   *            The class hierarchy of this run, <code>null</code> to leave out the child and implementation lists
+   */
+  protected void parseClassDoc(ClassDoc classDoc, Package packageNode, ClassTree tree) {
+    if (classDoc.isAnnotationType()) {
+      packageNode.getAnnotation().add(parseAnnotationTypeDoc(classDoc));
+    } else if (classDoc.isEnum()) {
+      packageNode.getEnum().add(parseEnum(classDoc));
+    } else if (classDoc.isInterface()) {
+      Interface interfaceNode = parseInterface(classDoc);
+
+      if (tree != null) {
         for (Object subDoc : tree.subinterfaces(classDoc)) {
           interfaceNode.getChild().add(parseTypeInfo((Type) subDoc));
         }
@@ -120,20 +478,20 @@ public class Parser {
         for (Object subDoc : tree.implementingclasses(classDoc)) {
           interfaceNode.getImplementation().add(parseTypeInfo((Type) subDoc));
         }
+      }
 
-        packageNode.getInterface().add(interfaceNode);
-      } else {
-        Class classNode = parseClass(classDoc);
+      packageNode.getInterface().add(interfaceNode);
+    } else {
+      Class classNode = parseClass(classDoc);
 
+      if (tree != null) {
         for (Object subDoc : tree.subclasses(classDoc)) {
           classNode.getChild().add(parseTypeInfo((Type) subDoc));
         }
-
-        packageNode.getClazz().add(classNode);
       }
-    }
 
-    return rootNode;
+      packageNode.getClazz().add(classNode);
+    }
   }
 
   /**
@@ -142,16 +500,19 @@ public class Parser {
    * @param doc The Doc object.
    */
   public String parseComment(Doc holder) {
-    StringBuilder comment = new StringBuilder();
-
-    // Analyse each token and produce comment node
-    for (Tag t : holder.inlineTags()) {
-      Taglet taglet = taglets.get(t.name());
-      if (taglet != null) comment.append(taglet.getOutput(this, t));
-      else comment.append(t.text());
+    if (skipComments || structuredComments) {
+      return null;
+    }
+    if (!ancestors.contains(holder)) {
+      return parseInlineTags(holder.inlineTags(), null);
     }
 
-    return comment.toString();
+    String comment = methodComments.get(holder);
+    if (comment == null) {
+      comment = parseInlineTags(holder.inlineTags(), null);
+      methodComments.put(holder, comment);
+    }
+    return comment;
   }
 
   /**
@@ -160,16 +521,227 @@ public class Parser {
    * @param tag The Doc object.
    */
   public String parseComment(Tag tag) {
-    StringBuilder comment = new StringBuilder();
+    if (skipComments || structuredComments) {
+      return null;
+    }
+    if (!ancestors.contains(tag)) {
+      return parseInlineTags(tag.inlineTags(), tag);
+    }
+
+    String comment = methodComments.get(tag);
+    if (comment == null) {
+      comment = parseInlineTags(tag.inlineTags(), tag);
+      methodComments.put(tag, comment);
+    }
+    return comment;
+  }
+
+  private String parseInlineTags(Tag[] inlineTags, Tag parent) {
+    CommentBuffers buffers = commentBuffers.get();
+    StringBuilder comment = buffers.acquire();
+    try {
+      // Analyse each token and produce comment node
+      for (Tag t : inlineTags) {
+        String name = t.name();
+        // Plain text never has a taglet, javadoc names it with the constant itself
+        if (name == TagletTable.TEXT) {
+          comment.append(t.text());
+          continue;
+        }
+
+        Taglet taglet = taglets.get(name);
+        if (taglet == null) comment.append(t.text());
+        else if (taglet instanceof AppendingTaglet) ((AppendingTaglet) taglet).appendOutput(this, t, parent, comment);
+        else if (parent != null) comment.append(taglet.getOutput(this, t, parent));
+        else comment.append(taglet.getOutput(this, t));
+      }
+
+      if (xhtml) {
+        return comments.intern(xhtmlNormalizers.get().normalize(comment.toString()));
+      }
+      return comments.intern(comment.toString());
+    } finally {
+      buffers.release();
+    }
+  }
+
+  /**
+   * Transforms comments on the Doc object into a structured body.
+   *
+   * @param holder The Doc object.
+   * @return the body, <code>null</code> unless structured comments are enabled
+   */
+  public CommentBody parseCommentBody(Doc holder) {
+    if (skipComments || !structuredComments) {
+      return null;
+    }
+    if (!ancestors.contains(holder)) {
+      return parseBody(holder.inlineTags(), null);
+    }
 
-    // Analyse each token and produce comment node
-    for (Tag t : tag.inlineTags()) {
-      Taglet taglet = taglets.get(t.name());
-      if (taglet != null) comment.append(taglet.getOutput(this, t));
-      else comment.append(t.text());
+    CommentBody body = methodBodies.get(holder);
+    if (body == null) {
+      body = parseBody(holder.inlineTags(), null);
+      methodBodies.put(holder, body);
     }
+    return body;
+  }
 
-    return comment.toString();
+  /**
+   * Transforms the text of a block tag into a structured body.
+   *
+   * @param tag The block tag.
+   * @return the body, <code>null</code> unless structured comments are enabled
+   */
+  public CommentBody parseCommentBody(Tag tag) {
+    if (skipComments || !structuredComments) {
+      return null;
+    }
+    if (!ancestors.contains(tag)) {
+      return parseBody(tag.inlineTags(), tag);
+    }
+
+    CommentBody body = methodBodies.get(tag);
+    if (body == null) {
+      body = parseBody(tag.inlineTags(), tag);
+      methodBodies.put(tag, body);
+    }
+    return body;
+  }
+
+  private CommentBody parseBody(Tag[] inlineTags, Tag parent) {
+    CommentBody body = objectFactory.createCommentBody();
+    List<JAXBElement<?>> nodes = body.getTextOrCodeOrLiteral();
+
+    // The inline tags are the tokens of the comment, each becomes one node
+    for (Tag t : inlineTags) {
+      String name = t.name();
+      if (name == TagletTable.TEXT) {
+        // javadoc adds empty runs around inline tags
+        if (t.text().length() > 0) {
+          nodes.add(objectFactory.createCommentBodyText(t.text()));
+        }
+        continue;
+      }
+
+      Taglet taglet = taglets.get(name);
+      if (taglet == null) {
+        nodes.add(objectFactory.createCommentBodyText(t.text()));
+      } else if (taglet instanceof InlineTag) {
+        parseBodyNode((InlineTag) taglet, t, parent, nodes);
+      } else {
+        TagletOutput output = objectFactory.createTagletOutput();
+        output.setName(strings.intern(name));
+        output.setValue(parent != null ? taglet.getOutput(this, t, parent) : taglet.getOutput(this, t));
+        nodes.add(objectFactory.createCommentBodyTaglet(output));
+      }
+    }
+
+    return body;
+  }
+
+  private void parseBodyNode(InlineTag taglet, Tag tag, Tag parent, List<JAXBElement<?>> nodes) {
+    switch (taglet) {
+    case CODE:
+      nodes.add(objectFactory.createCommentBodyCode(tag.text()));
+      break;
+    case LITERAL:
+      nodes.add(objectFactory.createCommentBodyLiteral(tag.text()));
+      break;
+    case VALUE:
+      String value = constants.getValue(tag);
+      nodes.add(objectFactory.createCommentBodyValue(value != null ? value : ""));
+      break;
+    case LINK:
+      if (tag instanceof SeeTag) {
+        nodes.add(objectFactory.createCommentBodyLink(parseLink((SeeTag) tag)));
+      }
+      break;
+    case LINKPLAIN:
+      if (tag instanceof SeeTag) {
+        nodes.add(objectFactory.createCommentBodyLinkplain(parseLink((SeeTag) tag)));
+      }
+      break;
+    case INHERITDOC:
+      if (tag.holder() instanceof MethodDoc) {
+        CommentBody inherited = null;
+        if (parent != null) {
+          Tag inheritedTag = getInheritedTag((MethodDoc) tag.holder(), parent);
+          inherited = inheritedTag != null ? parseCommentBody(inheritedTag) : null;
+        } else {
+          MethodDoc inheritedMethod = getInheritedMethod((MethodDoc) tag.holder());
+          inherited = inheritedMethod != null ? parseCommentBody(inheritedMethod) : null;
+        }
+        if (inherited != null) {
+          nodes.add(objectFactory.createCommentBodyInherited(inherited));
+        }
+      }
+      break;
+    default:
+      String output = taglet.getOutput(this, tag);
+      if (output != null) {
+        nodes.add(objectFactory.createCommentBodyText(output));
+      }
+      break;
+    }
+  }
+
+  /**
+   * Returns the method whose main description the given method inherits, searching it on first use.
+   *
+   * @param method The inheriting method.
+   * @return the ancestor, <code>null</code> if there is none
+   */
+  MethodDoc getInheritedMethod(MethodDoc method) {
+    MethodDoc inheritedMethod = inheritedMethods.get(method);
+    if (inheritedMethod == null) {
+      inheritedMethod = InheritedComments.findMethod(method);
+      if (inheritedMethod != null) {
+        ancestors.add(inheritedMethod);
+      } else {
+        inheritedMethod = method;
+      }
+      inheritedMethods.put(method, inheritedMethod);
+    }
+    return inheritedMethod != method ? inheritedMethod : null;
+  }
+
+  /**
+   * Returns the tag whose text the given tag of a method inherits, searching it on first use.
+   *
+   * @param method The method holding the tag.
+   * @param tag    The inheriting tag.
+   * @return the ancestor tag, <code>null</code> if there is none
+   */
+  Tag getInheritedTag(MethodDoc method, Tag tag) {
+    Tag inheritedTag = inheritedTags.get(tag);
+    if (inheritedTag == null) {
+      inheritedTag = InheritedComments.findTag(method, tag);
+      if (inheritedTag != null) {
+        ancestors.add(inheritedTag);
+      } else {
+        inheritedTag = tag;
+      }
+      inheritedTags.put(tag, inheritedTag);
+    }
+    return inheritedTag != tag ? inheritedTag : null;
+  }
+
+  /**
+   * @return the constant values of the fields of this run, filled when the run is parsed
+   */
+  ConstantIndex getConstants() {
+    return constants;
+  }
+
+  /**
+   * Tells whether the comment of a method or of a method tag is copied by {@inheritDoc}.
+   *
+   * @param doc The method or tag.
+   * @return <code>true</code> if its ancestor has been searched for an inheriting method or tag
+   */
+  boolean isAncestor(Object doc) {
+    return ancestors.contains(doc);
   }
 
   private String parseIdentifier(Type type) {
@@ -203,36 +775,114 @@ public class Parser {
   }
 
   public Link parseLink(SeeTag tag) {
-    Link seeNode = objectFactory.createLink();
-
-    if (tag.referencedMember() != null && tag.referencedMember().isIncluded()) {
-      String identifier = parseIdentifier((Doc) tag.referencedMember());
-      seeNode.setText(tag.referencedClass().name() + "#" + tag.referencedMemberName());
-      seeNode.setHref(identifier);
-    } else if (tag.referencedClass() != null && tag.referencedClass().isIncluded()) {
-      String identifier = parseIdentifier((Doc) tag.referencedClass());
-      seeNode.setText(tag.referencedClass().name());
-      seeNode.setHref(identifier);
-    } else if (tag.referencedPackage() != null && tag.referencedPackage().isIncluded()) {
-      String identifier = parseIdentifier((Doc) tag.referencedPackage());
-      seeNode.setText(tag.referencedPackage().name());
-      seeNode.setHref(identifier);
+    String label = tag.label();
+    if (label != null && label.isEmpty()) {
+      label = null;
+    }
+
+    // Each part of the target is asked for once, equal targets share one node
+    Doc target = null;
+    ClassDoc owner = null;
+    String name = null;
+    MemberDoc referencedMember = tag.referencedMember();
+    ClassDoc referencedClass = tag.referencedClass();
+    if (referencedMember != null && referencedMember.isIncluded()) {
+      target = referencedMember;
+      owner = referencedClass;
+      name = tag.referencedMemberName();
+    } else if (referencedClass != null && referencedClass.isIncluded()) {
+      target = referencedClass;
     } else {
-      seeNode.setText(tag.text());
+      PackageDoc referencedPackage = tag.referencedPackage();
+      if (referencedPackage != null && referencedPackage.isIncluded()) {
+        target = referencedPackage;
+      } else {
+        name = tag.text();
+      }
     }
 
-    if (tag.label() != null && !tag.label().isEmpty()) {
-      seeNode.setText(tag.label());
+    LinkKey key = new LinkKey(target, owner, name, label);
+    Link seeNode = links.get(key);
+    if (seeNode == null) {
+      seeNode = objectFactory.createLink();
+      if (target == null) {
+        seeNode.setText(strings.intern(name));
+      } else {
+        seeNode.setHref(strings.intern(parseIdentifier(target)));
+        if (owner != null) {
+          seeNode.setText(strings.intern(owner.name() + "#" + name));
+        } else {
+          seeNode.setText(strings.intern(target.name()));
+        }
+      }
+      if (label != null) {
+        seeNode.setText(strings.intern(label));
+      }
+      Link known = links.putIfAbsent(key, seeNode);
+      if (known != null) {
+        seeNode = known;
+      }
     }
 
     return seeNode;
   }
 
+  /**
+   * @return the serialized link nodes of this run, filled by the link taglets
+   */
+  Map<Link, String> getLinkFragments() {
+    return linkFragments;
+  }
+
+  /**
+   * The target and text of a link, identifying the node built for it.
+   */
+  private static final class LinkKey {
+
+    private final Doc target;
+    private final ClassDoc owner;
+    private final String name;
+    private final String label;
+
+    LinkKey(Doc target, ClassDoc owner, String name, String label) {
+      this.target = target;
+      this.owner = owner;
+      this.name = name;
+      this.label = label;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof LinkKey)) {
+        return false;
+      }
+      LinkKey other = (LinkKey) object;
+      return target == other.target && owner == other.owner && equal(name, other.name) && equal(label, other.label);
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = System.identityHashCode(target);
+      hash = hash * 31 + System.identityHashCode(owner);
+      hash = hash * 31 + (name != null ? name.hashCode() : 0);
+      return hash * 31 + (label != null ? label.hashCode() : 0);
+    }
+
+    private static boolean equal(String a, String b) {
+      return a == null ? b == null : a.equals(b);
+    }
+  }
+
   protected Package parsePackage(PackageDoc packageDoc) {
     Package packageNode = objectFactory.createPackage();
-    packageNode.setName(packageDoc.name());
-    packageNode.setIdentifier(parseIdentifier((Doc) packageDoc));
+    packageNode.setName(strings.intern(packageDoc.name()));
+    packageNode.setIdentifier(strings.intern(parseIdentifier((Doc) packageDoc)));
     packageNode.setComment(parseComment(packageDoc));
+    packageNode.setBody(parseCommentBody(packageDoc));
+
+    if (skipComments) {
+      return packageNode;
+    }
 
     Tag[] tags;
     SeeTag[] seeTags;
@@ -240,16 +890,17 @@ public class Parser {
     tags = packageDoc.tags("@deprecated");
     if (tags.length > 0) {
       packageNode.setDeprecated(parseComment(tags[0]));
+      packageNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = packageDoc.tags("@since");
     if (tags.length > 0) {
-      packageNode.setSince(tags[0].text());
+      packageNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = packageDoc.tags("@version");
     if (tags.length > 0) {
-      packageNode.setVersion(tags[0].text());
+      packageNode.setVersion(strings.intern(tags[0].text()));
     }
 
     seeTags = packageDoc.seeTags();
@@ -270,34 +921,44 @@ public class Parser {
    */
   protected Annotation parseAnnotationTypeDoc(ClassDoc classDoc) {
     Annotation annotationNode = objectFactory.createAnnotation();
-    annotationNode.setName(classDoc.name());
-    annotationNode.setDisplayName(classDoc.simpleTypeName());
-    annotationNode.setIdentifier(parseIdentifier((Doc) classDoc));
-    annotationNode.setFull(classDoc.qualifiedName());
+    annotationNode.setName(strings.intern(classDoc.name()));
+    annotationNode.setDisplayName(strings.intern(classDoc.simpleTypeName()));
+    annotationNode.setIdentifier(strings.intern(parseIdentifier((Doc) classDoc)));
+    annotationNode.setFull(strings.intern(classDoc.qualifiedName()));
     annotationNode.setComment(parseComment(classDoc));
+    annotationNode.setBody(parseCommentBody(classDoc));
     annotationNode.setScope(parseScope(classDoc));
 
+    for (AnnotationTypeElementDoc annotationTypeElementDoc : ((AnnotationTypeDoc) classDoc).elements()) {
+      annotationNode.getElement().add(parseAnnotationTypeElementDoc(annotationTypeElementDoc));
+    }
+
+    if (skipComments) {
+      return annotationNode;
+    }
+
     Tag[] tags;
     SeeTag[] seeTags;
 
     tags = classDoc.tags("@deprecated");
     if (tags.length > 0) {
       annotationNode.setDeprecated(parseComment(tags[0]));
+      annotationNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = classDoc.tags("@since");
     if (tags.length > 0) {
-      annotationNode.setSince(tags[0].text());
+      annotationNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@version");
     if (tags.length > 0) {
-      annotationNode.setVersion(tags[0].text());
+      annotationNode.setVersion(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@author");
     for (int i = 0; i < tags.length; i++) {
-      annotationNode.getAuthor().add(tags[i].text());
+      annotationNode.getAuthor().add(strings.intern(tags[i].text()));
     }
 
     seeTags = classDoc.seeTags();
@@ -306,10 +967,6 @@ public class Parser {
       annotationNode.getLink().add(parseLink(seeTags[i]));
     }
 
-    for (AnnotationTypeElementDoc annotationTypeElementDoc : ((AnnotationTypeDoc) classDoc).elements()) {
-      annotationNode.getElement().add(parseAnnotationTypeElementDoc(annotationTypeElementDoc));
-    }
-
     return annotationNode;
   }
 
@@ -322,15 +979,24 @@ public class Parser {
    */
   protected AnnotationElement parseAnnotationTypeElementDoc(AnnotationTypeElementDoc annotationTypeElementDoc) {
     AnnotationElement annotationElementNode = objectFactory.createAnnotationElement();
-    annotationElementNode.setName(annotationTypeElementDoc.name());
-    annotationElementNode.setIdentifier(parseIdentifier((Doc) annotationTypeElementDoc));
-    annotationElementNode.setId(annotationTypeElementDoc.name());
-    annotationElementNode.setFull(annotationTypeElementDoc.qualifiedName());
+    annotationElementNode.setName(strings.intern(annotationTypeElementDoc.name()));
+    annotationElementNode.setIdentifier(strings.intern(parseIdentifier((Doc) annotationTypeElementDoc)));
+    annotationElementNode.setId(strings.intern(annotationTypeElementDoc.name()));
+    annotationElementNode.setFull(strings.intern(annotationTypeElementDoc.qualifiedName()));
     annotationElementNode.setComment(parseComment(annotationTypeElementDoc));
+    annotationElementNode.setBody(parseCommentBody(annotationTypeElementDoc));
 
     AnnotationValue value = annotationTypeElementDoc.defaultValue();
     if (value != null) {
-      annotationElementNode.setDefault(value.toString());
+      annotationElementNode.setDefault(strings.intern(value.toString()));
+    }
+
+    Return returnNode = objectFactory.createReturn();
+    returnNode.setType(parseTypeInfo(annotationTypeElementDoc.returnType()));
+    annotationElementNode.setReturn(returnNode);
+
+    if (skipComments) {
+      return annotationElementNode;
     }
 
     Tag[] tags;
@@ -339,29 +1005,25 @@ public class Parser {
     tags = annotationTypeElementDoc.tags("@deprecated");
     if (tags.length > 0) {
       annotationElementNode.setDeprecated(parseComment(tags[0]));
+      annotationElementNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = annotationTypeElementDoc.tags("@since");
     if (tags.length > 0) {
-      annotationElementNode.setSince(tags[0].text());
+      annotationElementNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = annotationTypeElementDoc.tags("@version");
     if (tags.length > 0) {
-      annotationElementNode.setVersion(tags[0].text());
+      annotationElementNode.setVersion(strings.intern(tags[0].text()));
     }
 
-    Return returnNode = objectFactory.createReturn();
-
     tags = annotationTypeElementDoc.tags("@return");
     if (tags.length > 0) {
       returnNode.setComment(parseComment(tags[0]));
+      returnNode.setBody(parseCommentBody(tags[0]));
     }
 
-    returnNode.setType(parseTypeInfo(annotationTypeElementDoc.returnType()));
-
-    annotationElementNode.setReturn(returnNode);
-
     seeTags = annotationTypeElementDoc.seeTags();
     for (int i = 0; i < seeTags.length; i++) {
       annotationElementNode.getLink().add(parseLink(seeTags[i]));
@@ -372,51 +1034,65 @@ public class Parser {
 
   protected Enum parseEnum(ClassDoc classDoc) {
     Enum enumNode = objectFactory.createEnum();
-    enumNode.setName(classDoc.name());
-    enumNode.setDisplayName(classDoc.simpleTypeName());
-    enumNode.setIdentifier(parseIdentifier((Doc) classDoc));
-    enumNode.setFull(classDoc.qualifiedName());
+    enumNode.setName(strings.intern(classDoc.name()));
+    enumNode.setDisplayName(strings.intern(classDoc.simpleTypeName()));
+    enumNode.setIdentifier(strings.intern(parseIdentifier((Doc) classDoc)));
+    enumNode.setFull(strings.intern(classDoc.qualifiedName()));
     enumNode.setComment(parseComment(classDoc));
+    enumNode.setBody(parseCommentBody(classDoc));
     enumNode.setScope(parseScope(classDoc));
 
+    Type superClassType = classDoc.superclassType();
+    if (superClassType != null) {
+      enumNode.setClazz(parseTypeInfo(superClassType));
+    }
+
+    for (Type interfaceType : classDoc.interfaceTypes()) {
+      enumNode.getInterface().add(parseTypeInfo(interfaceType));
+    }
+
+    for (MethodDoc method : classDoc.methods()) {
+      if (filter.accept(method)) {
+        enumNode.getMethod().add(parseMethod(method));
+      }
+    }
+
+    for (FieldDoc field : classDoc.fields()) {
+      if (filter.accept(field)) {
+        enumNode.getField().add(parseField(field));
+      }
+    }
+
+    for (FieldDoc field : classDoc.enumConstants()) {
+      enumNode.getValue().add(parseEnumValue(field));
+    }
+
+    if (skipComments) {
+      return enumNode;
+    }
+
     Tag[] tags;
     SeeTag[] seeTags;
 
     tags = classDoc.tags("@deprecated");
     if (tags.length > 0) {
       enumNode.setDeprecated(parseComment(tags[0]));
+      enumNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = classDoc.tags("@since");
     if (tags.length > 0) {
-      enumNode.setSince(tags[0].text());
+      enumNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@version");
     if (tags.length > 0) {
-      enumNode.setVersion(tags[0].text());
+      enumNode.setVersion(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@author");
     for (int i = 0; i < tags.length; i++) {
-      enumNode.getAuthor().add(tags[i].text());
-    }
-
-    Type superClassType = classDoc.superclassType();
-    if (superClassType != null) {
-      enumNode.setClazz(parseTypeInfo(superClassType));
-    }
-
-    for (Type interfaceType : classDoc.interfaceTypes()) {
-      enumNode.getInterface().add(parseTypeInfo(interfaceType));
-    }
-
-    for (MethodDoc method : classDoc.methods()) {
-      enumNode.getMethod().add(parseMethod(method));
-    }
-
-    for (FieldDoc field : classDoc.fields()) {
-      enumNode.getField().add(parseField(field));
+      enumNode.getAuthor().add(strings.intern(tags[i].text()));
     }
 
     seeTags = classDoc.seeTags();
@@ -424,10 +1100,6 @@ public class Parser {
       enumNode.getLink().add(parseLink(seeTags[i]));
     }
 
-    for (FieldDoc field : classDoc.enumConstants()) {
-      enumNode.getValue().add(parseEnumValue(field));
-    }
-
     return enumNode;
   }
 
@@ -439,10 +1111,15 @@ public class Parser {
    */
   protected EnumValue parseEnumValue(FieldDoc fieldDoc) {
     EnumValue enumValue = objectFactory.createEnumValue();
-    enumValue.setName(fieldDoc.name());
-    enumValue.setIdentifier(parseIdentifier((Doc) fieldDoc));
-    enumValue.setId(fieldDoc.name());
+    enumValue.setName(strings.intern(fieldDoc.name()));
+    enumValue.setIdentifier(strings.intern(parseIdentifier((Doc) fieldDoc)));
+    enumValue.setId(strings.intern(fieldDoc.name()));
     enumValue.setComment(parseComment(fieldDoc));
+    enumValue.setBody(parseCommentBody(fieldDoc));
+
+    if (skipComments) {
+      return enumValue;
+    }
 
     Tag[] tags;
     SeeTag[] seeTags;
@@ -450,16 +1127,17 @@ public class Parser {
     tags = fieldDoc.tags("@deprecated");
     if (tags.length > 0) {
       enumValue.setDeprecated(parseComment(tags[0]));
+      enumValue.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = fieldDoc.tags("@since");
     if (tags.length > 0) {
-      enumValue.setSince(tags[0].text());
+      enumValue.setSince(strings.intern(tags[0].text()));
     }
 
     tags = fieldDoc.tags("@version");
     if (tags.length > 0) {
-      enumValue.setVersion(tags[0].text());
+      enumValue.setVersion(strings.intern(tags[0].text()));
     }
 
     seeTags = fieldDoc.seeTags();
@@ -473,11 +1151,12 @@ public class Parser {
   protected Interface parseInterface(ClassDoc classDoc) {
 
     Interface interfaceNode = objectFactory.createInterface();
-    interfaceNode.setName(classDoc.name());
-    interfaceNode.setDisplayName(classDoc.simpleTypeName());
-    interfaceNode.setIdentifier(parseIdentifier((Doc) classDoc));
-    interfaceNode.setFull(classDoc.qualifiedName());
+    interfaceNode.setName(strings.intern(classDoc.name()));
+    interfaceNode.setDisplayName(strings.intern(classDoc.simpleTypeName()));
+    interfaceNode.setIdentifier(strings.intern(parseIdentifier((Doc) classDoc)));
+    interfaceNode.setFull(strings.intern(classDoc.qualifiedName()));
     interfaceNode.setComment(parseComment(classDoc));
+    interfaceNode.setBody(parseCommentBody(classDoc));
     interfaceNode.setScope(parseScope(classDoc));
 
     for (TypeVariable typeVariable : classDoc.typeParameters()) {
@@ -489,7 +1168,13 @@ public class Parser {
     }
 
     for (MethodDoc method : classDoc.methods()) {
-      interfaceNode.getMethod().add(parseMethod(method));
+      if (filter.accept(method)) {
+        interfaceNode.getMethod().add(parseMethod(method));
+      }
+    }
+
+    if (skipComments) {
+      return interfaceNode;
     }
 
     Tag[] tags;
@@ -498,16 +1183,17 @@ public class Parser {
     tags = classDoc.tags("@deprecated");
     if (tags.length > 0) {
       interfaceNode.setDeprecated(parseComment(tags[0]));
+      interfaceNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = classDoc.tags("@since");
     if (tags.length > 0) {
-      interfaceNode.setSince(tags[0].text());
+      interfaceNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@version");
     if (tags.length > 0) {
-      interfaceNode.setVersion(tags[0].text());
+      interfaceNode.setVersion(strings.intern(tags[0].text()));
     }
 
     seeTags = classDoc.seeTags();
@@ -521,17 +1207,19 @@ public class Parser {
   protected Class parseClass(ClassDoc classDoc) {
 
     Class classNode = objectFactory.createClass();
-    classNode.setName(classDoc.name());
-    classNode.setDisplayName(classDoc.simpleTypeName());
-    classNode.setIdentifier(parseIdentifier((Doc) classDoc));
-    classNode.setFull(classDoc.qualifiedName());
+    classNode.setName(strings.intern(classDoc.name()));
+    classNode.setDisplayName(strings.intern(classDoc.simpleTypeName()));
+    classNode.setIdentifier(strings.intern(parseIdentifier((Doc) classDoc)));
+    classNode.setFull(strings.intern(classDoc.qualifiedName()));
     classNode.setComment(parseComment(classDoc));
-    classNode.setAbstract(classDoc.isAbstract());
+    classNode.setBody(parseCommentBody(classDoc));
+    int modifiers = classDoc.modifierSpecifier();
+    classNode.setAbstract(Modifier.isAbstract(modifiers));
     classNode.setError(classDoc.isError());
     classNode.setException(classDoc.isException());
     classNode.setExternalizable(classDoc.isExternalizable());
     classNode.setSerializable(classDoc.isSerializable());
-    classNode.setScope(parseScope(classDoc));
+    classNode.setScope(parseScope(modifiers));
 
     for (TypeVariable typeVariable : classDoc.typeParameters()) {
       classNode.getGeneric().add(parseGeneric(typeVariable));
@@ -547,15 +1235,25 @@ public class Parser {
     }
 
     for (MethodDoc method : classDoc.methods()) {
-      classNode.getMethod().add(parseMethod(method));
+      if (filter.accept(method)) {
+        classNode.getMethod().add(parseMethod(method));
+      }
     }
 
     for (ConstructorDoc constructor : classDoc.constructors()) {
-      classNode.getConstructor().add(parseConstructor(constructor));
+      if (filter.accept(constructor)) {
+        classNode.getConstructor().add(parseConstructor(constructor));
+      }
     }
 
     for (FieldDoc field : classDoc.fields()) {
-      classNode.getField().add(parseField(field));
+      if (filter.accept(field)) {
+        classNode.getField().add(parseField(field));
+      }
+    }
+
+    if (skipComments) {
+      return classNode;
     }
 
     Tag[] tags;
@@ -564,21 +1262,22 @@ public class Parser {
     tags = classDoc.tags("@deprecated");
     if (tags.length > 0) {
       classNode.setDeprecated(parseComment(tags[0]));
+      classNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = classDoc.tags("@since");
     if (tags.length > 0) {
-      classNode.setSince(tags[0].text());
+      classNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@version");
     if (tags.length > 0) {
-      classNode.setVersion(tags[0].text());
+      classNode.setVersion(strings.intern(tags[0].text()));
     }
 
     tags = classDoc.tags("@author");
     for (int i = 0; i < tags.length; i++) {
-      classNode.getAuthor().add(tags[i].text());
+      classNode.getAuthor().add(strings.intern(tags[i].text()));
     }
 
     seeTags = classDoc.seeTags();
@@ -592,32 +1291,43 @@ public class Parser {
   protected Constructor parseConstructor(ConstructorDoc constructorDoc) {
     Constructor constructorNode = objectFactory.createConstructor();
 
-    constructorNode.setName(constructorDoc.name());
-    constructorNode.setIdentifier(parseIdentifier((Doc) constructorDoc));
-    constructorNode.setId(constructorDoc.name() + URLEncoder.encode(constructorDoc.flatSignature()));
-    constructorNode.setFull(constructorDoc.qualifiedName());
+    constructorNode.setName(strings.intern(constructorDoc.name()));
+    constructorNode.setIdentifier(strings.intern(parseIdentifier((Doc) constructorDoc)));
+    constructorNode.setId(strings.intern(constructorDoc.name() + URLEncoder.encode(constructorDoc.flatSignature())));
+    constructorNode.setFull(strings.intern(constructorDoc.qualifiedName()));
     constructorNode.setComment(parseComment(constructorDoc));
-    constructorNode.setScope(parseScope(constructorDoc));
-    constructorNode.setFinal(constructorDoc.isFinal());
-    constructorNode.setNative(constructorDoc.isNative());
-    constructorNode.setStatic(constructorDoc.isStatic());
-    constructorNode.setSynchronized(constructorDoc.isSynchronized());
+    constructorNode.setBody(parseCommentBody(constructorDoc));
+    int modifiers = constructorDoc.modifierSpecifier();
+    constructorNode.setScope(parseScope(modifiers));
+    constructorNode.setFinal(Modifier.isFinal(modifiers));
+    constructorNode.setNative(Modifier.isNative(modifiers));
+    constructorNode.setStatic(Modifier.isStatic(modifiers));
+    constructorNode.setSynchronized(Modifier.isSynchronized(modifiers));
     constructorNode.setVarArgs(constructorDoc.isVarArgs());
 
-    Map<String, String> paramDescriptions = new HashMap<String, String>();
-    ParamTag[] paramTags = constructorDoc.paramTags();
+    Map<String, Tag> paramTags = new HashMap<String, Tag>();
 
-    for (int i = 0; i < paramTags.length; i++) {
-      paramDescriptions.put(paramTags[i].parameterName(), parseComment((Tag) paramTags[i]));
+    if (!skipComments) {
+      for (ParamTag paramTag : constructorDoc.paramTags()) {
+        paramTags.put(paramTag.parameterName(), paramTag);
+      }
     }
 
     for (Parameter parameter : constructorDoc.parameters()) {
       Param paramNode = parseParam(parameter);
-      paramNode.setComment(paramDescriptions.get(parameter.name()));
+      Tag paramTag = paramTags.get(parameter.name());
+      if (paramTag != null) {
+        paramNode.setComment(parseComment(paramTag));
+        paramNode.setBody(parseCommentBody(paramTag));
+      }
       constructorNode.getParam().add(paramNode);
     }
 
-    List<ThrowsTag> throwsTags = new ArrayList<ThrowsTag>(Arrays.asList(constructorDoc.throwsTags()));
+    List<ThrowsTag> throwsTags = new ArrayList<ThrowsTag>();
+
+    if (!skipComments) {
+      throwsTags.addAll(Arrays.asList(constructorDoc.throwsTags()));
+    }
 
     for (Type exceptionType : constructorDoc.thrownExceptionTypes()) {
       Throws throwsNode = objectFactory.createThrows();
@@ -628,6 +1338,7 @@ public class Parser {
 
         if (throwsTag.exceptionType() == exceptionType) {
           throwsNode.setComment(parseComment((Tag) throwsTag));
+          throwsNode.setBody(parseCommentBody((Tag) throwsTag));
           throwsTags.remove(i);
           break;
         }
@@ -642,26 +1353,32 @@ public class Parser {
 
       throwsNode.setType(parseTypeInfo(throwsTag.exceptionType()));
       throwsNode.setComment(parseComment((Tag) throwsTag));
+      throwsNode.setBody(parseCommentBody((Tag) throwsTag));
 
       constructorNode.getThrows().add(throwsNode);
     }
 
+    if (skipComments) {
+      return constructorNode;
+    }
+
     Tag[] tags;
     SeeTag[] seeTags;
 
     tags = constructorDoc.tags("@deprecated");
     if (tags.length > 0) {
       constructorNode.setDeprecated(parseComment(tags[0]));
+      constructorNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = constructorDoc.tags("@since");
     if (tags.length > 0) {
-      constructorNode.setSince(tags[0].text());
+      constructorNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = constructorDoc.tags("@version");
     if (tags.length > 0) {
-      constructorNode.setVersion(tags[0].text());
+      constructorNode.setVersion(strings.intern(tags[0].text()));
     }
 
     seeTags = constructorDoc.seeTags();
@@ -675,33 +1392,45 @@ public class Parser {
   protected Method parseMethod(MethodDoc methodDoc) {
     Method methodNode = objectFactory.createMethod();
 
-    methodNode.setName(methodDoc.name());
-    methodNode.setIdentifier(parseIdentifier((Doc) methodDoc));
-    methodNode.setId(methodDoc.name() + URLEncoder.encode(methodDoc.flatSignature()));
-    methodNode.setFull(methodDoc.qualifiedName());
+    methodNode.setName(strings.intern(methodDoc.name()));
+    methodNode.setIdentifier(strings.intern(parseIdentifier((Doc) methodDoc)));
+    methodNode.setId(strings.intern(methodDoc.name() + URLEncoder.encode(methodDoc.flatSignature())));
+    methodNode.setFull(strings.intern(methodDoc.qualifiedName()));
     methodNode.setComment(parseComment(methodDoc));
-    methodNode.setScope(parseScope(methodDoc));
-    methodNode.setAbstract(methodDoc.isAbstract());
-    methodNode.setFinal(methodDoc.isFinal());
-    methodNode.setNative(methodDoc.isNative());
-    methodNode.setStatic(methodDoc.isStatic());
-    methodNode.setSynchronized(methodDoc.isSynchronized());
+    methodNode.setBody(parseCommentBody(methodDoc));
+    int modifiers = methodDoc.modifierSpecifier();
+    methodNode.setScope(parseScope(modifiers));
+    // the modifier specifier of interface methods never contains the implicit abstract
+    methodNode.setAbstract(methodDoc.containingClass().isInterface() ? methodDoc.isAbstract() : Modifier.isAbstract(modifiers));
+    methodNode.setFinal(Modifier.isFinal(modifiers));
+    methodNode.setNative(Modifier.isNative(modifiers));
+    methodNode.setStatic(Modifier.isStatic(modifiers));
+    methodNode.setSynchronized(Modifier.isSynchronized(modifiers));
     methodNode.setVarArgs(methodDoc.isVarArgs());
 
-    Map<String, String> paramDescriptions = new HashMap<String, String>();
-    ParamTag[] paramTags = methodDoc.paramTags();
+    Map<String, Tag> paramTags = new HashMap<String, Tag>();
 
-    for (int i = 0; i < paramTags.length; i++) {
-      paramDescriptions.put(paramTags[i].parameterName(), parseComment((Tag) paramTags[i]));
+    if (!skipComments) {
+      for (ParamTag paramTag : methodDoc.paramTags()) {
+        paramTags.put(paramTag.parameterName(), paramTag);
+      }
     }
 
     for (Parameter parameter : methodDoc.parameters()) {
       Param paramNode = parseParam(parameter);
-      paramNode.setComment(paramDescriptions.get(parameter.name()));
+      Tag paramTag = paramTags.get(parameter.name());
+      if (paramTag != null) {
+        paramNode.setComment(parseComment(paramTag));
+        paramNode.setBody(parseCommentBody(paramTag));
+      }
       methodNode.getParam().add(paramNode);
     }
 
-    List<ThrowsTag> throwsTags = new ArrayList<ThrowsTag>(Arrays.asList(methodDoc.throwsTags()));
+    List<ThrowsTag> throwsTags = new ArrayList<ThrowsTag>();
+
+    if (!skipComments) {
+      throwsTags.addAll(Arrays.asList(methodDoc.throwsTags()));
+    }
 
     for (Type exceptionType : methodDoc.thrownExceptionTypes()) {
       Throws throwsNode = objectFactory.createThrows();
@@ -712,6 +1441,7 @@ public class Parser {
 
         if (throwsTag.exceptionType() == exceptionType) {
           throwsNode.setComment(parseComment((Tag) throwsTag));
+          throwsNode.setBody(parseCommentBody((Tag) throwsTag));
           throwsTags.remove(i);
           break;
         }
@@ -726,37 +1456,42 @@ public class Parser {
 
       throwsNode.setType(parseTypeInfo(throwsTag.exceptionType()));
       throwsNode.setComment(parseComment((Tag) throwsTag));
+      throwsNode.setBody(parseCommentBody((Tag) throwsTag));
 
       methodNode.getThrows().add(throwsNode);
     }
 
+    Return returnNode = objectFactory.createReturn();
+    returnNode.setType(parseTypeInfo(methodDoc.returnType()));
+    methodNode.setReturn(returnNode);
+
+    if (skipComments) {
+      return methodNode;
+    }
+
     Tag[] tags;
     SeeTag[] seeTags;
 
-    Return returnNode = objectFactory.createReturn();
-
     tags = methodDoc.tags("@return");
     if (tags.length > 0) {
       returnNode.setComment(parseComment(tags[0]));
+      returnNode.setBody(parseCommentBody(tags[0]));
     }
 
-    returnNode.setType(parseTypeInfo(methodDoc.returnType()));
-
-    methodNode.setReturn(returnNode);
-
     tags = methodDoc.tags("@deprecated");
     if (tags.length > 0) {
       methodNode.setDeprecated(parseComment(tags[0]));
+      methodNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = methodDoc.tags("@since");
     if (tags.length > 0) {
-      methodNode.setSince(tags[0].text());
+      methodNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = methodDoc.tags("@version");
     if (tags.length > 0) {
-      methodNode.setVersion(tags[0].text());
+      methodNode.setVersion(strings.intern(tags[0].text()));
     }
 
     seeTags = methodDoc.seeTags();
@@ -769,7 +1504,7 @@ public class Parser {
 
   protected Param parseParam(Parameter parameter) {
     Param paramNode = objectFactory.createParam();
-    paramNode.setName(parameter.name());
+    paramNode.setName(strings.intern(parameter.name()));
     paramNode.setType(parseTypeInfo(parameter.type()));
 
     return paramNode;
@@ -777,45 +1512,52 @@ public class Parser {
 
   protected Field parseField(FieldDoc fieldDoc) {
     Field fieldNode = objectFactory.createField();
-    fieldNode.setName(fieldDoc.name());
-    fieldNode.setIdentifier(parseIdentifier((FieldDoc) fieldDoc));
-    fieldNode.setId(fieldDoc.name());
-    fieldNode.setFull(fieldDoc.qualifiedName());
+    fieldNode.setName(strings.intern(fieldDoc.name()));
+    fieldNode.setIdentifier(strings.intern(parseIdentifier((FieldDoc) fieldDoc)));
+    fieldNode.setId(strings.intern(fieldDoc.name()));
+    String qualifiedName = strings.intern(fieldDoc.qualifiedName());
+    fieldNode.setFull(qualifiedName);
     fieldNode.setComment(parseComment(fieldDoc));
-    fieldNode.setScope(parseScope(fieldDoc));
-    fieldNode.setFinal(fieldDoc.isFinal());
-    fieldNode.setStatic(fieldDoc.isStatic());
-    fieldNode.setVolatile(fieldDoc.isVolatile());
-    fieldNode.setTransient(fieldDoc.isTransient());
-    fieldNode.setDefault(fieldDoc.constantValueExpression());
+    fieldNode.setBody(parseCommentBody(fieldDoc));
+    int modifiers = fieldDoc.modifierSpecifier();
+    fieldNode.setScope(parseScope(modifiers));
+    fieldNode.setFinal(Modifier.isFinal(modifiers));
+    fieldNode.setStatic(Modifier.isStatic(modifiers));
+    fieldNode.setVolatile(Modifier.isVolatile(modifiers));
+    fieldNode.setTransient(Modifier.isTransient(modifiers));
+    fieldNode.setDefault(strings.intern(constants.getValue(qualifiedName, fieldDoc)));
+
+    Return returnNode = objectFactory.createReturn();
+    returnNode.setType(parseTypeInfo(fieldDoc.type()));
+    fieldNode.setReturn(returnNode);
+
+    if (skipComments) {
+      return fieldNode;
+    }
 
     Tag[] tags;
     SeeTag[] seeTags;
 
-    Return returnNode = objectFactory.createReturn();
-
     tags = fieldDoc.tags("@return");
     if (tags.length > 0) {
       returnNode.setComment(parseComment(tags[0]));
+      returnNode.setBody(parseCommentBody(tags[0]));
     }
 
-    returnNode.setType(parseTypeInfo(fieldDoc.type()));
-
-    fieldNode.setReturn(returnNode);
-
     tags = fieldDoc.tags("@deprecated");
     if (tags.length > 0) {
       fieldNode.setDeprecated(parseComment(tags[0]));
+      fieldNode.setDeprecatedBody(parseCommentBody(tags[0]));
     }
 
     tags = fieldDoc.tags("@since");
     if (tags.length > 0) {
-      fieldNode.setSince(tags[0].text());
+      fieldNode.setSince(strings.intern(tags[0].text()));
     }
 
     tags = fieldDoc.tags("@version");
     if (tags.length > 0) {
-      fieldNode.setVersion(tags[0].text());
+      fieldNode.setVersion(strings.intern(tags[0].text()));
     }
 
     seeTags = fieldDoc.seeTags();
@@ -828,17 +1570,17 @@ public class Parser {
 
   protected TypeInfo parseTypeInfo(Type type) {
     TypeInfo typeInfoNode = objectFactory.createTypeInfo();
-    typeInfoNode.setName(type.simpleTypeName());
-    typeInfoNode.setDisplayName(type.simpleTypeName());
+    typeInfoNode.setName(strings.intern(type.simpleTypeName()));
+    typeInfoNode.setDisplayName(strings.intern(type.simpleTypeName()));
     if (type.isPrimitive()) {
-      typeInfoNode.setIdentifier(type.qualifiedTypeName());
+      typeInfoNode.setIdentifier(strings.intern(type.qualifiedTypeName()));
     } else {
-      typeInfoNode.setIdentifier(parseIdentifier(type));
+      typeInfoNode.setIdentifier(strings.intern(parseIdentifier(type)));
     }
-    typeInfoNode.setFull(type.qualifiedTypeName());
+    typeInfoNode.setFull(strings.intern(type.qualifiedTypeName()));
     String dimension = type.dimension();
     if (dimension.length() > 0) {
-      typeInfoNode.setDimension(dimension);
+      typeInfoNode.setDimension(strings.intern(dimension));
     }
 
     WildcardType wildcard = type.asWildcardType();
@@ -878,9 +1620,9 @@ public class Parser {
    */
   protected Generic parseGeneric(TypeVariable typeVariable) {
     Generic genericNode = objectFactory.createGeneric();
-    genericNode.setName(typeVariable.typeName());
-    genericNode.setIdentifier(parseIdentifier((Type) typeVariable));
-    genericNode.setId(typeVariable.simpleTypeName());
+    genericNode.setName(strings.intern(typeVariable.typeName()));
+    genericNode.setIdentifier(strings.intern(parseIdentifier((Type) typeVariable)));
+    genericNode.setId(strings.intern(typeVariable.simpleTypeName()));
 
     for (Type bound : typeVariable.bounds()) {
       genericNode.getBound().add(parseTypeInfo(bound));
@@ -896,11 +1638,21 @@ public class Parser {
    * @return
    */
   protected String parseScope(ProgramElementDoc doc) {
-    if (doc.isPrivate()) {
+    return parseScope(doc.modifierSpecifier());
+  }
+
+  /**
+   * Returns string representation of the scope encoded in the modifier bits
+   * 
+   * @param modifiers The value of {@link ProgramElementDoc#modifierSpecifier()}
+   * @return
+   */
+  protected String parseScope(int modifiers) {
+    if (Modifier.isPrivate(modifiers)) {
       return "private";
-    } else if (doc.isProtected()) {
+    } else if (Modifier.isProtected(modifiers)) {
       return "protected";
-    } else if (doc.isPublic()) {
+    } else if (Modifier.isPublic(modifiers)) {
       return "public";
     }
     return "";
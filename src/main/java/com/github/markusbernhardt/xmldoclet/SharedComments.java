@@ -0,0 +1,241 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Annotation;
+import com.github.markusbernhardt.xmldoclet.xjc.AnnotationElement;
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
+import com.github.markusbernhardt.xmldoclet.xjc.Enum;
+import com.github.markusbernhardt.xmldoclet.xjc.EnumValue;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Param;
+import com.github.markusbernhardt.xmldoclet.xjc.Return;
+import com.github.markusbernhardt.xmldoclet.xjc.SharedComment;
+import com.github.markusbernhardt.xmldoclet.xjc.Throws;
+
+/**
+ * Moves the comments occurring more than once into a list of shared comments, which is written once after all
+ * packages.
+ *
+ * <p>Sharing takes two passes. Every finished package is counted first, by a 64-bit hash of each comment text,
+ * so the texts need not be kept while packages are spilled. Once all packages are counted, they are shared one
+ * by one as they are written: a comment counted more than once is kept once and gets an id in the order it is
+ * first met, <code>c1</code>, <code>c2</code> and so on, and the nodes holding it refer to it through their
+ * <code>comment-ref</code> attribute instead of holding the text. Unique and empty comments stay in place. A
+ * hash collision only costs a reference to a comment which occurs once.
+ */
+public class SharedComments {
+
+  private final Map<Long, Integer> counts = new HashMap<Long, Integer>();
+
+  private final Map<String, String> ids = new HashMap<String, String>();
+
+  private final List<SharedComment> sharedComments = new ArrayList<SharedComment>();
+
+  /**
+   * <code>true</code> while packages are counted, <code>false</code> while they are shared.
+   */
+  private boolean counting;
+
+  /**
+   * Counts the comments of a finished package.
+   *
+   * @param packageNode
+   *            The finished package
+   */
+  public void count(Package packageNode) {
+    counting = true;
+    walk(packageNode);
+  }
+
+  /**
+   * Replaces the comments of a package, which occur more than once in all counted packages, by references.
+   *
+   * @param packageNode
+   *            A counted package
+   */
+  public void share(Package packageNode) {
+    counting = false;
+    walk(packageNode);
+  }
+
+  /**
+   * @return the shared comments in the order of their ids
+   */
+  public List<SharedComment> getSharedComments() {
+    return sharedComments;
+  }
+
+  private void walk(Package packageNode) {
+    String ref = share(packageNode.getComment());
+    if (ref != null) {
+      packageNode.setCommentRef(ref);
+      packageNode.setComment(null);
+    }
+
+    for (Annotation annotationNode : packageNode.getAnnotation()) {
+      ref = share(annotationNode.getComment());
+      if (ref != null) {
+        annotationNode.setCommentRef(ref);
+        annotationNode.setComment(null);
+      }
+      for (AnnotationElement annotationElementNode : annotationNode.getElement()) {
+        ref = share(annotationElementNode.getComment());
+        if (ref != null) {
+          annotationElementNode.setCommentRef(ref);
+          annotationElementNode.setComment(null);
+        }
+        walk(annotationElementNode.getReturn());
+      }
+    }
+
+    for (Enum enumNode : packageNode.getEnum()) {
+      ref = share(enumNode.getComment());
+      if (ref != null) {
+        enumNode.setCommentRef(ref);
+        enumNode.setComment(null);
+      }
+      for (EnumValue enumValue : enumNode.getValue()) {
+        ref = share(enumValue.getComment());
+        if (ref != null) {
+          enumValue.setCommentRef(ref);
+          enumValue.setComment(null);
+        }
+      }
+      walkFields(enumNode.getField());
+      walkMethods(enumNode.getMethod());
+    }
+
+    for (Interface interfaceNode : packageNode.getInterface()) {
+      ref = share(interfaceNode.getComment());
+      if (ref != null) {
+        interfaceNode.setCommentRef(ref);
+        interfaceNode.setComment(null);
+      }
+      walkMethods(interfaceNode.getMethod());
+    }
+
+    for (Class classNode : packageNode.getClazz()) {
+      ref = share(classNode.getComment());
+      if (ref != null) {
+        classNode.setCommentRef(ref);
+        classNode.setComment(null);
+      }
+      walkFields(classNode.getField());
+      for (Constructor constructorNode : classNode.getConstructor()) {
+        ref = share(constructorNode.getComment());
+        if (ref != null) {
+          constructorNode.setCommentRef(ref);
+          constructorNode.setComment(null);
+        }
+        walkParams(constructorNode.getParam(), constructorNode.getThrows());
+      }
+      walkMethods(classNode.getMethod());
+    }
+  }
+
+  private void walkFields(List<Field> fieldNodes) {
+    for (Field fieldNode : fieldNodes) {
+      String ref = share(fieldNode.getComment());
+      if (ref != null) {
+        fieldNode.setCommentRef(ref);
+        fieldNode.setComment(null);
+      }
+      walk(fieldNode.getReturn());
+    }
+  }
+
+  private void walkMethods(List<Method> methodNodes) {
+    for (Method methodNode : methodNodes) {
+      String ref = share(methodNode.getComment());
+      if (ref != null) {
+        methodNode.setCommentRef(ref);
+        methodNode.setComment(null);
+      }
+      walkParams(methodNode.getParam(), methodNode.getThrows());
+      walk(methodNode.getReturn());
+    }
+  }
+
+  private void walkParams(List<Param> paramNodes, List<Throws> throwsNodes) {
+    for (Param paramNode : paramNodes) {
+      String ref = share(paramNode.getComment());
+      if (ref != null) {
+        paramNode.setCommentRef(ref);
+        paramNode.setComment(null);
+      }
+    }
+    for (Throws throwsNode : throwsNodes) {
+      String ref = share(throwsNode.getComment());
+      if (ref != null) {
+        throwsNode.setCommentRef(ref);
+        throwsNode.setComment(null);
+      }
+    }
+  }
+
+  private void walk(Return returnNode) {
+    if (returnNode == null) {
+      return;
+    }
+    String ref = share(returnNode.getComment());
+    if (ref != null) {
+      returnNode.setCommentRef(ref);
+      returnNode.setComment(null);
+    }
+  }
+
+  /**
+   * Counts a comment, or returns its reference if it is shared.
+   *
+   * @param comment
+   *            The comment, may be <code>null</code>
+   * @return the id of the shared comment, <code>null</code> while counting and for comments left in place
+   */
+  private String share(String comment) {
+    // Empty comments stay in place, a reference would not be shorter
+    if (comment == null || comment.length() == 0) {
+      return null;
+    }
+
+    Long hash = Long.valueOf(hash(comment));
+    Integer count = counts.get(hash);
+    if (counting) {
+      counts.put(hash, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+      return null;
+    }
+    if (count == null || count.intValue() < 2) {
+      return null;
+    }
+
+    String id = ids.get(comment);
+    if (id == null) {
+      id = "c" + (sharedComments.size() + 1);
+      ids.put(comment, id);
+
+      SharedComment sharedComment = new SharedComment();
+      sharedComment.setId(id);
+      sharedComment.setValue(comment);
+      sharedComments.add(sharedComment);
+    }
+    return id;
+  }
+
+  /**
+   * The 64-bit FNV-1a hash of the characters of a comment.
+   */
+  private static long hash(String comment) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < comment.length(); i++) {
+      hash = (hash ^ comment.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A deduplicating pool for the strings stored in the documentation model.
+ *
+ * <p>Scope values, type names, qualified names and identifiers repeat across thousands of nodes, but every
+ * one of them is the result of a separate call into the javadoc API or a separate concatenation. Routing
+ * them through a pool makes equal values share a single instance for the lifetime of one run.
+ *
+ * <p>Unlike {@link String#intern()} the pool is dropped together with its {@link Parser}. It may be used by
+ * several threads at once, as the taglets rendering comments are.
+ */
+public final class StringPool {
+
+  private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Returns the canonical instance for the given value.
+   *
+   * @param value The string to deduplicate, may be <code>null</code>.
+   * @return the pooled instance equal to <code>value</code>, or <code>null</code>.
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    String pooled = strings.get(value);
+    if (pooled == null) {
+      pooled = strings.putIfAbsent(value, value);
+      if (pooled == null) {
+        pooled = value;
+      }
+    }
+    return pooled;
+  }
+
+  /**
+   * Drops all pooled strings, so that the pool no longer keeps them reachable.
+   */
+  public void clear() {
+    strings.clear();
+  }
+
+  /**
+   * @return the number of distinct strings held by this pool.
+   */
+  public int size() {
+    return strings.size();
+  }
+}
@@ -2,8 +2,46 @@ package com.github.markusbernhardt.xmldoclet;
 
 import com.sun.javadoc.Tag;
 
+/**
+ * Renders an inline tag of a comment.
+ *
+ * <p>Besides the standard {@link InlineTag}s, taglets are discovered with {@link java.util.ServiceLoader}: a jar on
+ * the doclet path lists its implementations in <code>META-INF/services/com.github.markusbernhardt.xmldoclet.Taglet</code>,
+ * and each needs a public no-argument constructor. A discovered taglet replaces a standard one of the same name.
+ * The taglets are loaded once when the {@link Parser} is created and cannot change during a run.
+ *
+ * <p>A single instance renders every tag of its name, and may be called by several threads at once. Taglets must
+ * therefore be stateless or thread-safe, and should not allocate more than the returned string, as they run for
+ * every occurrence of their tag.
+ */
 public interface Taglet {
+
+  /**
+   * @return the name of the inline tag, including the leading '@'
+   */
   public String getName();
+
+  /**
+   * Renders an inline tag of a main description.
+   *
+   * @param parser
+   *            The parser of the run
+   * @param tag
+   *            The inline tag
+   * @return the text replacing the tag
+   */
   public String getOutput(Parser parser, Tag tag);
+
+  /**
+   * Renders an inline tag of a block tag, like <code>@param</code> or <code>@return</code>.
+   *
+   * @param parser
+   *            The parser of the run
+   * @param tag
+   *            The inline tag
+   * @param parent
+   *            The block tag containing the inline tag
+   * @return the text replacing the tag
+   */
   public String getOutput(Parser parser, Tag tag, Tag parent);
 }
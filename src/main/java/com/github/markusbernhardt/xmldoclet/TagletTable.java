@@ -0,0 +1,72 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.Collection;
+
+/**
+ * An immutable table dispatching inline tags to their taglet by tag name.
+ *
+ * <p>The table is built once per {@link Parser} and looked up for every inline tag of every comment. It is an
+ * open addressed array of names and taglets sized to at most half full, so a lookup is one hash of a string
+ * whose hash code is usually cached, and one or two comparisons. Plain text, which makes up most inline tags,
+ * is recognised by {@link #TEXT} before the table is consulted at all.
+ */
+public final class TagletTable {
+
+  /**
+   * The name javadoc gives to the plain text between inline tags.
+   */
+  public final static String TEXT = "Text";
+
+  private final String[] names;
+
+  private final Taglet[] taglets;
+
+  private final int mask;
+
+  /**
+   * Creates a new table. A later taglet replaces an earlier one of the same name.
+   *
+   * @param taglets
+   *            The taglets to dispatch to
+   */
+  public TagletTable(Collection<? extends Taglet> taglets) {
+    int capacity = 8;
+    while (capacity < taglets.size() * 2) {
+      capacity <<= 1;
+    }
+    this.names = new String[capacity];
+    this.taglets = new Taglet[capacity];
+    this.mask = capacity - 1;
+
+    for (Taglet taglet : taglets) {
+      String name = taglet.getName();
+      int i = index(name);
+      while (names[i] != null && !names[i].equals(name)) {
+        i = (i + 1) & mask;
+      }
+      names[i] = name;
+      this.taglets[i] = taglet;
+    }
+  }
+
+  /**
+   * Returns the taglet for the given tag name.
+   *
+   * @param name
+   *            The name of an inline tag, including the leading '@'
+   * @return the taglet, <code>null</code> if there is none
+   */
+  public Taglet get(String name) {
+    for (int i = index(name); names[i] != null; i = (i + 1) & mask) {
+      if (names[i] == name || names[i].equals(name)) {
+        return taglets[i];
+      }
+    }
+    return null;
+  }
+
+  private int index(String name) {
+    int hash = name.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,508 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns the HTML of a comment into well-formed XHTML in a single pass.
+ *
+ * <p>Element and attribute names are lower cased, attribute values are quoted, void elements like
+ * <code>&lt;br&gt;</code> are closed, and elements left open are closed where HTML closes them implicitly, at the
+ * end tag of an enclosing element, or at the end of the comment. End tags without a start tag are dropped. Stray
+ * <code>&amp;</code> and <code>&lt;</code> are escaped, the common HTML entities are replaced by character
+ * references, and HTML comments and characters not allowed in XML are dropped.
+ *
+ * <p>Every character is read once and the stack of open elements is bounded by {@link #MAX_DEPTH}; start tags
+ * nested deeper are dropped together with their end tags. An instance reuses its buffers and is not thread-safe.
+ */
+public final class XhtmlNormalizer {
+
+  /**
+   * The maximum number of nested open elements.
+   */
+  public final static int MAX_DEPTH = 64;
+
+  private final static String[] VOID_ELEMENTS = { "area", "base", "br", "col", "embed", "hr", "img", "input", "link",
+      "meta", "param", "source", "track", "wbr" };
+
+  /**
+   * The elements closed implicitly by the start tag of an element, only while they are the innermost open one.
+   */
+  private final static Map<String, String[]> IMPLIED_ENDS = new HashMap<String, String[]>();
+
+  /**
+   * The HTML entities commonly found in comments, as character codes.
+   */
+  private final static Map<String, Integer> ENTITIES = new HashMap<String, Integer>();
+
+  static {
+    String[] paragraph = { "p" };
+    for (String block : new String[] { "p", "div", "ul", "ol", "dl", "table", "pre", "blockquote", "h1", "h2", "h3",
+        "h4", "h5", "h6", "hr" }) {
+      IMPLIED_ENDS.put(block, paragraph);
+    }
+    IMPLIED_ENDS.put("li", new String[] { "p", "li" });
+    IMPLIED_ENDS.put("dt", new String[] { "p", "dt", "dd" });
+    IMPLIED_ENDS.put("dd", new String[] { "p", "dt", "dd" });
+    IMPLIED_ENDS.put("tr", new String[] { "p", "td", "th", "tr" });
+    IMPLIED_ENDS.put("td", new String[] { "p", "td", "th" });
+    IMPLIED_ENDS.put("th", new String[] { "p", "td", "th" });
+
+    String[] names = { "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect", "uml", "copy", "ordf",
+        "laquo", "not", "shy", "reg", "macr", "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+        "cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest" };
+    for (int i = 0; i < names.length; i++) {
+      ENTITIES.put(names[i], Integer.valueOf(160 + i));
+    }
+    ENTITIES.put("times", Integer.valueOf(215));
+    ENTITIES.put("divide", Integer.valueOf(247));
+    ENTITIES.put("auml", Integer.valueOf(228));
+    ENTITIES.put("ouml", Integer.valueOf(246));
+    ENTITIES.put("uuml", Integer.valueOf(252));
+    ENTITIES.put("Auml", Integer.valueOf(196));
+    ENTITIES.put("Ouml", Integer.valueOf(214));
+    ENTITIES.put("Uuml", Integer.valueOf(220));
+    ENTITIES.put("szlig", Integer.valueOf(223));
+    ENTITIES.put("eacute", Integer.valueOf(233));
+    ENTITIES.put("egrave", Integer.valueOf(232));
+    ENTITIES.put("agrave", Integer.valueOf(224));
+    ENTITIES.put("ccedil", Integer.valueOf(231));
+    ENTITIES.put("ndash", Integer.valueOf(8211));
+    ENTITIES.put("mdash", Integer.valueOf(8212));
+    ENTITIES.put("lsquo", Integer.valueOf(8216));
+    ENTITIES.put("rsquo", Integer.valueOf(8217));
+    ENTITIES.put("ldquo", Integer.valueOf(8220));
+    ENTITIES.put("rdquo", Integer.valueOf(8221));
+    ENTITIES.put("bull", Integer.valueOf(8226));
+    ENTITIES.put("hellip", Integer.valueOf(8230));
+    ENTITIES.put("trade", Integer.valueOf(8482));
+    ENTITIES.put("larr", Integer.valueOf(8592));
+    ENTITIES.put("rarr", Integer.valueOf(8594));
+    ENTITIES.put("le", Integer.valueOf(8804));
+    ENTITIES.put("ge", Integer.valueOf(8805));
+    ENTITIES.put("ne", Integer.valueOf(8800));
+  }
+
+  private final String[] stack = new String[MAX_DEPTH];
+
+  private int depth;
+
+  /**
+   * The start tags dropped for being nested too deep, whose end tags have to be dropped as well.
+   */
+  private int dropped;
+
+  private final StringBuilder out = new StringBuilder();
+
+  /**
+   * The positions from which a search for the end of a comment, a CDATA section, a declaration or a quoted
+   * attribute value has failed before. A later search from the same or a later position would fail as well, and
+   * is not repeated.
+   */
+  private int noCommentEnd;
+  private int noCdataEnd;
+  private int noDeclarationEnd;
+  private int noDoubleQuoteEnd;
+  private int noSingleQuoteEnd;
+
+  /**
+   * Normalizes the HTML of a comment.
+   *
+   * @param html
+   *            The HTML, may be <code>null</code>
+   * @return the well-formed XHTML, <code>null</code> for <code>null</code>
+   */
+  public String normalize(String html) {
+    if (html == null) {
+      return null;
+    }
+
+    out.setLength(0);
+    depth = 0;
+    dropped = 0;
+    noCommentEnd = Integer.MAX_VALUE;
+    noCdataEnd = Integer.MAX_VALUE;
+    noDeclarationEnd = Integer.MAX_VALUE;
+    noDoubleQuoteEnd = Integer.MAX_VALUE;
+    noSingleQuoteEnd = Integer.MAX_VALUE;
+
+    int length = html.length();
+    int i = 0;
+    while (i < length) {
+      char c = html.charAt(i);
+      if (c == '<') {
+        i = markup(html, i);
+      } else if (c == '&') {
+        i = reference(html, i);
+      } else {
+        if (c == '>') {
+          out.append("&gt;");
+        } else if (isXmlChar(c)) {
+          out.append(c);
+        }
+        i++;
+      }
+    }
+
+    while (depth > 0) {
+      closeTop();
+    }
+    return out.toString();
+  }
+
+  /**
+   * Copies the markup starting at the given '&lt;', or escapes it if it is no markup.
+   *
+   * @return the index after the markup
+   */
+  private int markup(String html, int start) {
+    int length = html.length();
+    if (html.startsWith("<!--", start)) {
+      // comments are dropped, their content need not be valid in XML
+      int end = start < noCommentEnd ? html.indexOf("-->", start + 4) : -1;
+      if (end >= 0) {
+        return end + 3;
+      }
+      noCommentEnd = Math.min(noCommentEnd, start);
+    } else if (html.startsWith("<![CDATA[", start)) {
+      int end = start < noCdataEnd ? html.indexOf("]]>", start + 9) : -1;
+      if (end >= 0) {
+        for (int i = start; i < end + 3; i++) {
+          if (isXmlChar(html.charAt(i))) {
+            out.append(html.charAt(i));
+          }
+        }
+        return end + 3;
+      }
+      noCdataEnd = Math.min(noCdataEnd, start);
+    } else if (start + 1 < length && (html.charAt(start + 1) == '!' || html.charAt(start + 1) == '?')) {
+      // doctype and processing instructions have no place in a comment
+      int end = start < noDeclarationEnd ? html.indexOf('>', start) : -1;
+      if (end >= 0) {
+        return end + 1;
+      }
+      noDeclarationEnd = Math.min(noDeclarationEnd, start);
+    } else if (start + 1 < length && html.charAt(start + 1) == '/') {
+      int nameEnd = nameEnd(html, start + 2);
+      int end = nameEnd;
+      while (end < length && Character.isWhitespace(html.charAt(end))) {
+        end++;
+      }
+      if (nameEnd > start + 2 && end < length && html.charAt(end) == '>') {
+        endTag(html.substring(start + 2, nameEnd).toLowerCase());
+        return end + 1;
+      }
+    } else {
+      int nameEnd = nameEnd(html, start + 1);
+      if (nameEnd > start + 1 && Character.isLetter(html.charAt(start + 1))) {
+        int end = startTag(html, start, nameEnd);
+        if (end >= 0) {
+          return end;
+        }
+      }
+    }
+
+    out.append("&lt;");
+    return start + 1;
+  }
+
+  /**
+   * Writes the start tag beginning at the given index with its attributes.
+   *
+   * @return the index after the tag, -1 if the tag is not closed
+   */
+  private int startTag(String html, int start, int nameEnd) {
+    int length = html.length();
+    String name = html.substring(start + 1, nameEnd).toLowerCase();
+
+    // Find the end of the tag first. Quoted values may contain '<' and '>' and end at the closing quote, while
+    // a '<' outside of them ends the scan, which keeps the scans linear.
+    int i = nameEnd;
+    while (i < length) {
+      char c = html.charAt(i);
+      if (c == '<') {
+        return -1;
+      } else if (c == '"' || c == '\'') {
+        int valueEnd = closingQuote(html, c, i + 1);
+        if (valueEnd < 0) {
+          return -1;
+        }
+        i = valueEnd;
+      } else if (c == '>') {
+        break;
+      }
+      i++;
+    }
+    if (i == length) {
+      return -1;
+    }
+    int end = i;
+
+    boolean isVoid = isVoid(name);
+    if (!isVoid) {
+      String[] implied = IMPLIED_ENDS.get(name);
+      if (implied != null) {
+        while (depth > 0 && contains(implied, stack[depth - 1])) {
+          closeTop();
+        }
+      }
+      if (depth == MAX_DEPTH) {
+        dropped++;
+        return end + 1;
+      }
+    }
+
+    out.append('<').append(name);
+    attributes(html, nameEnd, end, name);
+    if (isVoid || html.charAt(end - 1) == '/') {
+      out.append("/>");
+    } else {
+      out.append('>');
+      stack[depth++] = name;
+    }
+    return end + 1;
+  }
+
+  /**
+   * @return the index of the quote closing a value starting at the given index, -1 if it is not closed
+   */
+  private int closingQuote(String html, char quote, int from) {
+    if (from >= (quote == '"' ? noDoubleQuoteEnd : noSingleQuoteEnd)) {
+      return -1;
+    }
+    int end = html.indexOf(quote, from);
+    if (end < 0) {
+      if (quote == '"') {
+        noDoubleQuoteEnd = Math.min(noDoubleQuoteEnd, from);
+      } else {
+        noSingleQuoteEnd = Math.min(noSingleQuoteEnd, from);
+      }
+    }
+    return end;
+  }
+
+  private void attributes(String html, int from, int end, String element) {
+    int i = from;
+    int first = out.length();
+    while (i < end) {
+      char c = html.charAt(i);
+      if (Character.isWhitespace(c) || c == '/') {
+        i++;
+        continue;
+      }
+
+      int nameEnd = i;
+      while (nameEnd < end && isNameChar(html.charAt(nameEnd))) {
+        nameEnd++;
+      }
+      if (nameEnd == i || !Character.isLetter(c)) {
+        // not an attribute name, skip the character
+        i++;
+        continue;
+      }
+      String name = html.substring(i, nameEnd).toLowerCase();
+      i = nameEnd;
+      while (i < end && Character.isWhitespace(html.charAt(i))) {
+        i++;
+      }
+
+      int valueStart = -1;
+      int valueEnd = -1;
+      if (i < end && html.charAt(i) == '=') {
+        i++;
+        while (i < end && Character.isWhitespace(html.charAt(i))) {
+          i++;
+        }
+        if (i < end && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+          char quote = html.charAt(i);
+          valueStart = i + 1;
+          valueEnd = html.indexOf(quote, valueStart);
+          if (valueEnd < 0 || valueEnd > end) {
+            valueEnd = end;
+          }
+          i = valueEnd + 1;
+        } else {
+          valueStart = i;
+          while (i < end && !Character.isWhitespace(html.charAt(i)) && !(html.charAt(i) == '/' && i + 1 == end)) {
+            i++;
+          }
+          valueEnd = i;
+        }
+      }
+
+      // a repeated attribute would not be well-formed, the first one wins
+      if (out.indexOf(" " + name + "=\"", first) >= 0) {
+        continue;
+      }
+      out.append(' ').append(name).append("=\"");
+      if (valueStart < 0) {
+        out.append(name);
+      } else {
+        for (int j = valueStart; j < valueEnd; j++) {
+          char c2 = html.charAt(j);
+          if (c2 == '&') {
+            int next = reference(html, j);
+            j = next - 1;
+          } else if (c2 == '<') {
+            out.append("&lt;");
+          } else if (c2 == '"') {
+            out.append("&quot;");
+          } else if (isXmlChar(c2)) {
+            out.append(c2);
+          }
+        }
+      }
+      out.append('"');
+    }
+  }
+
+  private void endTag(String name) {
+    if (isVoid(name)) {
+      return;
+    }
+    // the innermost start tags were dropped, so are the next end tags
+    if (dropped > 0) {
+      dropped--;
+      return;
+    }
+    for (int i = depth - 1; i >= 0; i--) {
+      if (stack[i].equals(name)) {
+        while (depth > i) {
+          closeTop();
+        }
+        return;
+      }
+    }
+  }
+
+  private void closeTop() {
+    out.append("</").append(stack[--depth]).append('>');
+    stack[depth] = null;
+  }
+
+  /**
+   * Copies the character or entity reference starting at the given '&amp;', or escapes it.
+   *
+   * @return the index after the reference
+   */
+  private int reference(String html, int start) {
+    int length = html.length();
+    int i = start + 1;
+    if (i < length && html.charAt(i) == '#') {
+      i++;
+      boolean hex = i < length && (html.charAt(i) == 'x' || html.charAt(i) == 'X');
+      if (hex) {
+        i++;
+      }
+      int digits = i;
+      while (i < length && (hex ? Character.digit(html.charAt(i), 16) >= 0 : Character.isDigit(html.charAt(i)))) {
+        i++;
+      }
+      if (i > digits && i < length && html.charAt(i) == ';' && i - digits <= 7
+          && isXmlCode(Integer.parseInt(html.substring(digits, i), hex ? 16 : 10))) {
+        out.append(html, start, i + 1);
+        return i + 1;
+      }
+    } else {
+      while (i < length && i - start <= 10 && Character.isLetterOrDigit(html.charAt(i))) {
+        i++;
+      }
+      if (i > start + 1 && i < length && html.charAt(i) == ';') {
+        String name = html.substring(start + 1, i);
+        if (name.equals("amp") || name.equals("lt") || name.equals("gt") || name.equals("quot")
+            || name.equals("apos")) {
+          out.append(html, start, i + 1);
+          return i + 1;
+        }
+        Integer code = ENTITIES.get(name);
+        if (code != null) {
+          out.append("&#").append(code.intValue()).append(';');
+          return i + 1;
+        }
+      }
+    }
+
+    out.append("&amp;");
+    return start + 1;
+  }
+
+  /**
+   * Escapes text which is to be shown as it is, like the text of {@code} and {@literal} tags, so that the
+   * normalizer does not read it as markup.
+   *
+   * @param text
+   *            The text
+   * @param out
+   *            The buffer to append the escaped text to
+   */
+  public static void escape(String text, StringBuilder out) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '&') {
+        out.append("&amp;");
+      } else if (c == '<') {
+        out.append("&lt;");
+      } else if (c == '>') {
+        out.append("&gt;");
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  /**
+   * Escapes text which is to be shown as it is.
+   *
+   * @param text
+   *            The text
+   * @return the escaped text
+   * @see #escape(String, StringBuilder)
+   */
+  public static String escape(String text) {
+    StringBuilder out = new StringBuilder(text.length() + 16);
+    escape(text, out);
+    return out.toString();
+  }
+
+  private static boolean isXmlChar(char c) {
+    return c >= 0x20 ? c != 0xFFFE && c != 0xFFFF : c == '\t' || c == '\n' || c == '\r';
+  }
+
+  private static boolean isXmlCode(int code) {
+    if (code < 0x20) {
+      return code == 0x9 || code == 0xA || code == 0xD;
+    }
+    return (code <= 0xD7FF) || (code >= 0xE000 && code <= 0xFFFD) || (code >= 0x10000 && code <= 0x10FFFF);
+  }
+
+  private static int nameEnd(String html, int from) {
+    int i = from;
+    while (i < html.length() && isNameChar(html.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isNameChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_'
+        || c == ':' || c == '.';
+  }
+
+  private static boolean isVoid(String name) {
+    for (String voidElement : VOID_ELEMENTS) {
+      if (voidElement.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean contains(String[] names, String name) {
+    for (String candidate : names) {
+      if (candidate.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
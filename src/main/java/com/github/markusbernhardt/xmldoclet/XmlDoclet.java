@@ -1,11 +1,14 @@
 package com.github.markusbernhardt.xmldoclet;
 
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -71,6 +74,78 @@ public class XmlDoclet {
 		OptionBuilder.hasArg();
 		OptionBuilder.withDescription("Name of the output file.\nDefault: javadoc.xml");
 		options.addOption(OptionBuilder.create("filename"));
+
+		OptionBuilder.withArgName("scope");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Skip types and members below this scope (public, protected, package or private).\nDefault: private");
+		options.addOption(OptionBuilder.create("scope"));
+
+		OptionBuilder.withArgName("globs");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Colon separated package globs to include, e.g. com.example.*\nDefault: all packages");
+		options.addOption(OptionBuilder.create("includepackages"));
+
+		OptionBuilder.withArgName("globs");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Colon separated package globs to exclude, e.g. com.example.internal.*\nDefault: none");
+		options.addOption(OptionBuilder.create("excludepackages"));
+
+		OptionBuilder.withArgName("nocomment");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArgs(0);
+		OptionBuilder.withDescription("Emit signatures only, without any comment, tag or link text.\nDefault: false");
+		options.addOption(OptionBuilder.create("nocomment"));
+
+		OptionBuilder.withArgName("structuredcomments");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArgs(0);
+		OptionBuilder.withDescription("Emit comments as body elements of text, code, literal, value, link and inherited nodes instead of strings.\nDefault: false");
+		options.addOption(OptionBuilder.create("structuredcomments"));
+
+		OptionBuilder.withArgName("xhtml");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArgs(0);
+		OptionBuilder.withDescription("Make the HTML of comments well-formed XHTML.\nDefault: false");
+		options.addOption(OptionBuilder.create("xhtml"));
+
+		OptionBuilder.withArgName("sharedcomments");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArgs(0);
+		OptionBuilder.withDescription("Emit each repeated comment once and refer to it from the elements holding it.\nDefault: false");
+		options.addOption(OptionBuilder.create("sharedcomments"));
+
+		OptionBuilder.withArgName("nohierarchy");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArgs(0);
+		OptionBuilder.withDescription("Leave out the child and implementation lists of classes and interfaces.\nDefault: false");
+		options.addOption(OptionBuilder.create("nohierarchy"));
+
+		OptionBuilder.withArgName("file");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Keep the class hierarchy in this file and only read the types of changed sources again on the next run.\nDefault: none");
+		options.addOption(OptionBuilder.create("hierarchyindex"));
+
+		OptionBuilder.withArgName("threads");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Read the class hierarchy on this number of threads.\nDefault: 1");
+		options.addOption(OptionBuilder.create("hierarchythreads"));
+
+		OptionBuilder.withArgName("file");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Write the class hierarchy to this file as a list of types and edges.\nDefault: none");
+		options.addOption(OptionBuilder.create("hierarchyfile"));
+
+		OptionBuilder.withArgName("megabytes");
+		OptionBuilder.isRequired(false);
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("Move finished packages to temporary files once the used heap exceeds this size.\nDefault: keep all packages in memory");
+		options.addOption(OptionBuilder.create("spillthreshold"));
 	}
 
 	/**
@@ -118,7 +193,47 @@ public class XmlDoclet {
 	 * @return <code>true</code> if the options are valid.
 	 */
 	public static boolean validOptions(String optionsArrayArray[][], DocErrorReporter reporter) {
-		return null != parseCommandLine(optionsArrayArray);
+		CommandLine commandLine = parseCommandLine(optionsArrayArray);
+		if (commandLine == null) {
+			return false;
+		}
+		if (commandLine.hasOption("scope") && !DocFilter.isValidScope(commandLine.getOptionValue("scope"))) {
+			reporter.printError("Invalid scope: " + commandLine.getOptionValue("scope"));
+			return false;
+		}
+		if (commandLine.hasOption("hierarchyfile") && commandLine.hasOption("nohierarchy")) {
+			reporter.printError("The options -hierarchyfile and -nohierarchy cannot be combined");
+			return false;
+		}
+		if (commandLine.hasOption("structuredcomments") && commandLine.hasOption("xhtml")) {
+			reporter.printError("The options -structuredcomments and -xhtml cannot be combined");
+			return false;
+		}
+		if (commandLine.hasOption("structuredcomments") && commandLine.hasOption("sharedcomments")) {
+			reporter.printError("The options -structuredcomments and -sharedcomments cannot be combined");
+			return false;
+		}
+		if (commandLine.hasOption("hierarchythreads")) {
+			int threads;
+			try {
+				threads = Integer.parseInt(commandLine.getOptionValue("hierarchythreads"));
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+			if (threads < 1) {
+				reporter.printError("Invalid number of hierarchy threads: " + commandLine.getOptionValue("hierarchythreads"));
+				return false;
+			}
+		}
+		if (commandLine.hasOption("spillthreshold")) {
+			try {
+				Long.parseLong(commandLine.getOptionValue("spillthreshold"));
+			} catch (NumberFormatException e) {
+				reporter.printError("Invalid spill threshold: " + commandLine.getOptionValue("spillthreshold"));
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -136,11 +251,99 @@ public class XmlDoclet {
 	public static boolean start(RootDoc rootDoc) {
 		CommandLine commandLine = parseCommandLine(rootDoc.options());
 		Parser parser = new Parser("/");
+		parser.setFilter(new DocFilter(commandLine.getOptionValue("scope"), commandLine.getOptionValue("includepackages"),
+				commandLine.getOptionValue("excludepackages")));
+		parser.setSkipComments(commandLine.hasOption("nocomment"));
+		parser.setStructuredComments(commandLine.hasOption("structuredcomments"));
+		parser.setXhtml(commandLine.hasOption("xhtml"));
+		parser.setSharedComments(commandLine.hasOption("sharedcomments"));
+		parser.setSkipHierarchy(commandLine.hasOption("nohierarchy"));
+		if (commandLine.hasOption("hierarchythreads")) {
+			parser.setHierarchyThreads(Integer.parseInt(commandLine.getOptionValue("hierarchythreads")));
+		}
+		if (commandLine.hasOption("spillthreshold")) {
+			try {
+				parser.setPackageStore(new PackageStore(Long.parseLong(commandLine.getOptionValue("spillthreshold"))));
+			} catch (JAXBException e) {
+				log.error(e.getMessage(), e);
+				return false;
+			}
+		}
+		if (commandLine.hasOption("hierarchyindex")) {
+			HierarchyIndex hierarchyIndex = new HierarchyIndex(new File(commandLine.getOptionValue("hierarchyindex")),
+					getHierarchySignature(rootDoc.options(), commandLine));
+			try {
+				hierarchyIndex.load();
+			} catch (IOException e) {
+				log.warn("Cannot load hierarchy index, starting from scratch: " + e.getMessage());
+			}
+			parser.setHierarchyIndex(hierarchyIndex);
+		}
 		root = parser.parseRootDoc(rootDoc);
-		save(commandLine, root);
+		if (parser.getHierarchyIndex() != null && !parser.isSkipHierarchy()) {
+			try {
+				parser.getHierarchyIndex().save();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+		if (commandLine.hasOption("hierarchyfile")) {
+			saveHierarchy(new File(commandLine.getOptionValue("hierarchyfile")), parser.getClassTree());
+		}
+		save(commandLine, root, parser.getPackageStore());
 		return true;
 	}
 
+	/**
+	 * Save the class hierarchy to a file as an edge list.
+	 * 
+	 * @param file
+	 *            The file to write
+	 * @param tree
+	 *            The class hierarchy of the run
+	 */
+	private static void saveHierarchy(File file, ClassTree tree) {
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1024 * 1024);
+			tree.writeEdges(writer);
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					log.error(e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the options the class hierarchy depends on: the filter and the
+	 * paths the external super types are loaded from.
+	 * 
+	 * @param options
+	 *            The options of the javadoc run
+	 * @param commandLine
+	 *            The parsed doclet options
+	 * @return the signature of the hierarchy index
+	 */
+	private static String getHierarchySignature(String[][] options, CommandLine commandLine) {
+		StringBuilder signature = new StringBuilder();
+		signature.append(commandLine.getOptionValue("scope")).append(':');
+		signature.append(commandLine.getOptionValue("includepackages")).append(':');
+		signature.append(commandLine.getOptionValue("excludepackages"));
+		for (String[] option : options) {
+			if (option[0].equals("-classpath") || option[0].equals("-cp") || option[0].equals("-sourcepath")
+					|| option[0].equals("-bootclasspath") || option[0].equals("-extdirs")) {
+				signature.append(':').append(option[1]);
+			}
+		}
+		return signature.toString();
+	}
+
 	/**
 	 * Save XML object model to a file via JAXB.
 	 * 
@@ -148,6 +351,18 @@ public class XmlDoclet {
 	 * @param root
 	 */
 	public static void save(CommandLine commandLine, Root root) {
+		save(commandLine, root, null);
+	}
+
+	/**
+	 * Save XML object model to a file via JAXB. If a package store is given,
+	 * the packages are streamed from the store instead of taken from the root.
+	 * 
+	 * @param commandLine
+	 * @param root
+	 * @param packageStore
+	 */
+	public static void save(CommandLine commandLine, Root root, PackageStore packageStore) {
 		if (commandLine.hasOption("dryrun")) {
 			return;
 		}
@@ -155,14 +370,6 @@ public class XmlDoclet {
 		FileOutputStream fileOutputStream = null;
 		BufferedOutputStream bufferedOutputStream = null;
 		try {
-			JAXBContext contextObj = JAXBContext.newInstance(Root.class);
-
-			Marshaller marshaller = contextObj.createMarshaller();
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			if (commandLine.hasOption("docencoding")) {
-				marshaller.setProperty(Marshaller.JAXB_ENCODING, commandLine.getOptionValue("docencoding"));
-			}
-
 			String filename = "javadoc.xml";
 			if (commandLine.hasOption("filename")) {
 				filename = commandLine.getOptionValue("filename");
@@ -174,7 +381,23 @@ public class XmlDoclet {
 			fileOutputStream = new FileOutputStream(filename);
 			bufferedOutputStream = new BufferedOutputStream(fileOutputStream, 1024 * 1024);
 
-			marshaller.marshal(root, bufferedOutputStream);
+			if (packageStore != null) {
+				String encoding = "UTF-8";
+				if (commandLine.hasOption("docencoding")) {
+					encoding = commandLine.getOptionValue("docencoding");
+				}
+				packageStore.write(bufferedOutputStream, encoding);
+			} else {
+				JAXBContext contextObj = JAXBContext.newInstance(Root.class);
+
+				Marshaller marshaller = contextObj.createMarshaller();
+				marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+				if (commandLine.hasOption("docencoding")) {
+					marshaller.setProperty(Marshaller.JAXB_ENCODING, commandLine.getOptionValue("docencoding"));
+				}
+
+				marshaller.marshal(root, bufferedOutputStream);
+			}
 			bufferedOutputStream.flush();
 			fileOutputStream.flush();
 
@@ -1,11 +1,18 @@
 package com.github.markusbernhardt.xmldoclet;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -126,6 +133,68 @@ public class AbstractTestParent {
 		return XmlDoclet.root;
 	}
 
+	/**
+	 * Creates an empty directory to hold generated sources for a test run.
+	 * 
+	 * @param name
+	 *            A prefix for the directory name
+	 * @return a new directory below the system temp directory
+	 */
+	public static File createSourceDirectory(String name) throws IOException {
+		File directory = File.createTempFile(name, "");
+		if (!directory.delete() || !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		return directory;
+	}
+
+	/**
+	 * Writes a generated compilation unit below the given source directory.
+	 * 
+	 * @param sourceDirectory
+	 *            The root of the package folder layout
+	 * @param packageName
+	 *            The package of the compilation unit
+	 * @param typeName
+	 *            The simple name of the top level type
+	 * @param body
+	 *            The source code following the package declaration
+	 * @return the path of the written source file
+	 */
+	public static String writeSource(File sourceDirectory, String packageName, String typeName, String body)
+			throws IOException {
+		File directory = new File(sourceDirectory, packageName.replace('.', File.separatorChar));
+		directory.mkdirs();
+		File file = new File(directory, typeName + ".java");
+		OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("package " + packageName + ";\n\n");
+			writer.write(body);
+		} finally {
+			writer.close();
+		}
+		return file.getPath();
+	}
+
+	/**
+	 * Reads a written document back and marshals it again, so documents can be
+	 * compared by their content. The file is deleted afterwards.
+	 * 
+	 * @param file
+	 *            The document written by a test run
+	 * @return the document as marshalled from memory
+	 */
+	public static String normalize(File file) throws Exception {
+		JAXBContext context = JAXBContext.newInstance(Root.class);
+		Object rootNode = context.createUnmarshaller().unmarshal(file);
+		file.delete();
+
+		Marshaller marshaller = context.createMarshaller();
+		StringWriter writer = new StringWriter();
+		marshaller.marshal(rootNode, writer);
+		return writer.toString();
+	}
+
 	public static String join(String glue, String[] strings) {
 		return join(glue, Arrays.asList(strings));
 	}
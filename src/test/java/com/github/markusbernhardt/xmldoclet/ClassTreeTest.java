@@ -0,0 +1,310 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javadoc.ClassDoc;
+
+/**
+ * Unit test group for the class hierarchy on synthetic type graphs
+ */
+public class ClassTreeTest {
+
+	private final static Logger log = LoggerFactory.getLogger(ClassTreeTest.class);
+
+	/**
+	 * Creates one base class and one interface with the given number of
+	 * direct sub-classes each implementing the interface.
+	 */
+	private static ClassDoc[] createWideHierarchy(int width) {
+		ClassDoc[] classes = new ClassDoc[width + 2];
+		ClassDoc entity = MockClassDoc.createInterface("com.example.Entity");
+		ClassDoc base = MockClassDoc.createClass("com.example.AbstractEntity", null);
+		classes[0] = entity;
+		classes[1] = base;
+		for (int i = 0; i < width; i++) {
+			classes[i + 2] = MockClassDoc.createClass("com.example.Entity" + (width - i), base, entity);
+		}
+		return classes;
+	}
+
+	/**
+	 * testing a base class with a very wide fan-out
+	 */
+	@Test
+	public void testWideHierarchy() {
+		ClassDoc[] classes = createWideHierarchy(20000);
+
+		long start = System.nanoTime();
+		ClassTree tree = new ClassTree(classes, new DocFilter());
+		List<?> subclasses = tree.subclasses(classes[1]);
+		List<?> implementingClasses = tree.implementingclasses(classes[0]);
+		log.info("wide hierarchy of " + classes.length + " types built in " + (System.nanoTime() - start) / 1000000
+				+ " ms");
+
+		assertEquals(subclasses.size(), 20000);
+		for (int i = 1; i < subclasses.size(); i++) {
+			assertTrue(((ClassDoc) subclasses.get(i - 1)).compareTo(subclasses.get(i)) < 0);
+		}
+		assertEquals(implementingClasses.size(), 20000);
+		assertEquals(tree.baseclasses().size(), 1);
+		assertEquals(tree.baseinterfaces().size(), 1);
+	}
+
+	/**
+	 * testing the implementing classes of an interface diamond
+	 */
+	@Test
+	public void testImplementingClasses() {
+		ClassDoc top = MockClassDoc.createInterface("com.example.Top");
+		ClassDoc left = MockClassDoc.createInterface("com.example.Left", top);
+		ClassDoc right = MockClassDoc.createInterface("com.example.Right", top);
+		ClassDoc bottom = MockClassDoc.createInterface("com.example.Bottom", left, right);
+		ClassDoc first = MockClassDoc.createClass("com.example.First", null, bottom);
+		ClassDoc second = MockClassDoc.createClass("com.example.Second", null, right);
+		ClassTree tree = new ClassTree(new ClassDoc[] { top, left, right, bottom, first, second }, new DocFilter());
+
+		List<?> implementingClasses = tree.implementingclasses(top);
+		assertEquals(implementingClasses.size(), 2);
+		assertEquals(implementingClasses.get(0), first);
+		assertEquals(implementingClasses.get(1), second);
+		assertEquals(tree.implementingclasses(left).size(), 1);
+		assertEquals(tree.allSubs(top, false).size(), 3);
+
+		// the closure must not leak into the direct sub-interfaces
+		assertEquals(tree.subinterfaces(top).size(), 2);
+		try {
+			implementingClasses.clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * testing the implementing classes of every interface of a long chain
+	 */
+	@Test
+	public void testInterfaceChain() {
+		int depth = 300;
+		int width = 10;
+		ClassDoc[] classes = new ClassDoc[depth * (width + 1)];
+		ClassDoc superInterface = null;
+		for (int i = 0; i < depth; i++) {
+			ClassDoc interfaceDoc = superInterface == null ? MockClassDoc.createInterface("com.example.I" + i)
+					: MockClassDoc.createInterface("com.example.I" + i, superInterface);
+			classes[i * (width + 1)] = interfaceDoc;
+			for (int j = 0; j < width; j++) {
+				classes[i * (width + 1) + j + 1] = MockClassDoc.createClass("com.example.C" + i + "_" + j, null,
+						interfaceDoc);
+			}
+			superInterface = interfaceDoc;
+		}
+		long start = System.nanoTime();
+		ClassTree tree = new ClassTree(classes, new DocFilter());
+		for (int i = 0; i < depth; i++) {
+			ClassDoc interfaceDoc = classes[i * (width + 1)];
+			assertEquals(tree.implementingclasses(interfaceDoc).size(), (depth - i) * width);
+			assertEquals(tree.subinterfaces(interfaceDoc).size(), i == depth - 1 ? 0 : 1);
+		}
+		log.info("tree of " + depth + " interfaces built and queried in " + (System.nanoTime() - start)
+				/ 1000000 + " ms");
+	}
+
+	/**
+	 * testing queries for a type which is not part of the tree
+	 */
+	@Test
+	public void testUnknownType() {
+		ClassDoc base = MockClassDoc.createClass("com.example.Base", null);
+		ClassDoc sub = MockClassDoc.createClass("com.example.Sub", base);
+		ClassTree tree = new ClassTree(new ClassDoc[] { sub }, new DocFilter());
+
+		// the external super class is part of the tree
+		assertEquals(tree.subclasses(base).size(), 1);
+		assertEquals(tree.subclasses(base).get(0), sub);
+
+		ClassDoc unknown = MockClassDoc.createClass("com.example.Unknown", null);
+		assertEquals(tree.subclasses(unknown).size(), 0);
+		assertEquals(tree.allSubs(unknown, false).size(), 0);
+		assertEquals(tree.implementingclasses(unknown).size(), 0);
+	}
+
+	/**
+	 * testing the interfaces of a deep class hierarchy where every tenth
+	 * class implements an interface of a wide interface hierarchy
+	 */
+	@Test
+	public void testDeepHierarchy() {
+		int depth = 2000;
+		ClassDoc[] interfaces = new ClassDoc[40];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = i < 4 ? MockClassDoc.createInterface("com.example.I" + i) : MockClassDoc.createInterface(
+					"com.example.I" + i, interfaces[i / 4 - 1], interfaces[i % 4]);
+		}
+		ClassDoc[] classes = new ClassDoc[depth];
+		ClassDoc superclass = null;
+		for (int i = 0; i < depth; i++) {
+			classes[i] = i % 10 == 0 ? MockClassDoc.createClass("com.example.C" + i, superclass,
+					interfaces[i / 10 % interfaces.length]) : MockClassDoc.createClass("com.example.C" + i, superclass);
+			superclass = classes[i];
+		}
+
+		long start = System.nanoTime();
+		ClassTree tree = new ClassTree(classes, new DocFilter());
+		assertEquals(tree.implementingclasses(interfaces[0]).size(), depth);
+		assertEquals(tree.subclasses(classes[depth - 2]).size(), 1);
+		log.info("deep hierarchy of " + depth + " classes built in " + (System.nanoTime() - start) / 1000000 + " ms");
+
+		assertEquals(tree.getAllInterfaces(classes[0]).size(), 1);
+		assertEquals(tree.getAllInterfaces(classes[depth - 1]).size(), interfaces.length);
+	}
+
+	/**
+	 * testing that interfaces are sorted by name ignoring the case
+	 */
+	@Test
+	public void testInterfaceOrder() {
+		ClassDoc beta = MockClassDoc.createInterface("com.example.beta");
+		ClassDoc alpha = MockClassDoc.createInterface("com.example.Alpha");
+		ClassDoc gamma = MockClassDoc.createInterface("com.example.Gamma");
+		ClassDoc base = MockClassDoc.createClass("com.example.Base", null, gamma);
+		ClassDoc sub = MockClassDoc.createClass("com.example.Sub", base, beta, alpha);
+		ClassTree tree = new ClassTree(new ClassDoc[] { sub }, new DocFilter());
+
+		List<?> interfaces = tree.getAllInterfaces(sub);
+		assertEquals(interfaces.size(), 3);
+		assertEquals(interfaces.get(0), alpha);
+		assertEquals(interfaces.get(1), beta);
+		assertEquals(interfaces.get(2), gamma);
+	}
+
+	/**
+	 * testing that parts of the tree which are not queried are not built
+	 */
+	@Test
+	public void testLazyParts() {
+		ClassDoc base = MockClassDoc.createClass("com.example.Base", null);
+		ClassDoc sub = MockClassDoc.createClass("com.example.Sub", base);
+		ClassDoc interfaceDoc = MockClassDoc.createInterface("com.example.Contract");
+		MockClassDoc.addInterface(sub, interfaceDoc);
+		ClassTree tree = new ClassTree(new ClassDoc[] { sub, interfaceDoc }, new DocFilter());
+
+		// the interfaces of the classes are only needed for the implementors
+		MockClassDoc.addInterface(base, interfaceDoc);
+		assertEquals(tree.subclasses(base).size(), 1);
+		assertEquals(tree.implementingclasses(interfaceDoc).size(), 2);
+	}
+
+	/**
+	 * testing that the hierarchy read on several threads is the same as the
+	 * one walked on the calling thread
+	 */
+	@Test
+	public void testParallelHierarchy() {
+		Random random = new Random(42);
+		ClassDoc[] interfaces = new ClassDoc[200];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = i == 0 ? MockClassDoc.createInterface("com.example.I0") : MockClassDoc.createInterface(
+					"com.example.I" + i, interfaces[random.nextInt(i)], interfaces[random.nextInt(i)]);
+		}
+		ClassDoc external = MockClassDoc.createClass("com.example.External", null, interfaces[0]);
+		ClassDoc[] classes = new ClassDoc[interfaces.length + 5000];
+		System.arraycopy(interfaces, 0, classes, 0, interfaces.length);
+		for (int i = interfaces.length; i < classes.length; i++) {
+			ClassDoc superclass = i == interfaces.length ? external : classes[interfaces.length + random.nextInt(i
+					- interfaces.length)];
+			classes[i] = MockClassDoc.createClass("com.example.C" + (classes.length - i), superclass,
+					interfaces[random.nextInt(interfaces.length)]);
+		}
+
+		ClassTree sequential = new ClassTree(classes, new DocFilter());
+		ClassTree parallel = new ClassTree(classes, new DocFilter());
+		HierarchyIndex index = new HierarchyIndex(null, null);
+		long start = System.nanoTime();
+		index.update(classes, new DocFilter(), 4);
+		parallel.setIndex(index);
+		log.info("hierarchy of " + classes.length + " types read on 4 threads in " + (System.nanoTime() - start)
+				/ 1000000 + " ms");
+
+		for (ClassDoc classDoc : classes) {
+			if (classDoc.isInterface()) {
+				assertEquals(parallel.subinterfaces(classDoc), sequential.subinterfaces(classDoc));
+				assertEquals(parallel.implementingclasses(classDoc), sequential.implementingclasses(classDoc));
+			} else {
+				assertEquals(parallel.subclasses(classDoc), sequential.subclasses(classDoc));
+			}
+		}
+		assertEquals(parallel.implementingclasses(interfaces[0]).size(), classes.length - interfaces.length + 1);
+		assertEquals(parallel.subclasses(external), sequential.subclasses(external));
+		assertEquals(index.getUpdatedCount(), classes.length + 1);
+	}
+
+	/**
+	 * testing a class chain deeper than the stack would allow for a
+	 * recursive walk
+	 */
+	@Test
+	public void testDeepClassChain() {
+		int depth = 10000;
+		ClassDoc interfaceDoc = MockClassDoc.createInterface("com.example.Root");
+		ClassDoc[] classes = new ClassDoc[depth];
+		for (int i = 0; i < depth; i++) {
+			classes[i] = i == 0 ? MockClassDoc.createClass("com.example.C0", null, interfaceDoc) : MockClassDoc
+					.createClass("com.example.C" + i, classes[i - 1]);
+		}
+
+		// the deepest class goes first, so every walk starts at the bottom
+		ClassDoc[] reversed = new ClassDoc[depth];
+		for (int i = 0; i < depth; i++) {
+			reversed[i] = classes[depth - 1 - i];
+		}
+
+		long start = System.nanoTime();
+		ClassTree tree = new ClassTree(reversed, new DocFilter());
+		assertEquals(tree.getAllInterfaces(classes[depth - 1]).size(), 1);
+		assertEquals(tree.subclasses(classes[0]).size(), 1);
+		assertEquals(tree.subclasses(classes[depth - 2]).get(0), classes[depth - 1]);
+		assertEquals(tree.baseclasses().size(), 1);
+		assertEquals(tree.implementingclasses(interfaceDoc).size(), depth);
+		log.info("class chain of " + depth + " classes built in " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	/**
+	 * testing an interface chain deeper than the stack would allow for a
+	 * recursive walk
+	 */
+	@Test
+	public void testDeepInterfaceChain() {
+		int depth = 10000;
+		ClassDoc[] interfaces = new ClassDoc[depth];
+		for (int i = 0; i < depth; i++) {
+			interfaces[i] = i == 0 ? MockClassDoc.createInterface("com.example.I0") : MockClassDoc.createInterface(
+					"com.example.I" + i, interfaces[i - 1]);
+		}
+		ClassDoc implementation = MockClassDoc.createClass("com.example.Implementation", null, interfaces[depth - 1]);
+		// the deepest interface goes first, so every walk starts at the bottom
+		ClassDoc[] classes = new ClassDoc[depth + 1];
+		for (int i = 0; i < depth; i++) {
+			classes[i] = interfaces[depth - 1 - i];
+		}
+		classes[depth] = implementation;
+
+		long start = System.nanoTime();
+		ClassTree tree = new ClassTree(classes, new DocFilter());
+		assertEquals(tree.subinterfaces(interfaces[0]).size(), 1);
+		assertEquals(tree.subinterfaces(interfaces[depth - 2]).get(0), interfaces[depth - 1]);
+		assertEquals(tree.baseinterfaces().size(), 1);
+		assertEquals(tree.implementingclasses(interfaces[0]).size(), 1);
+		log.info("interface chain of " + depth + " interfaces built in " + (System.nanoTime() - start) / 1000000
+				+ " ms");
+	}
+}
@@ -0,0 +1,181 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javadoc.Tag;
+
+/**
+ * Unit test group for the reused buffers of comment rendering
+ */
+public class CommentBuffersTest {
+
+	private final static Logger log = LoggerFactory.getLogger(CommentBuffersTest.class);
+
+	private final static TagletTable taglets = new TagletTable(Arrays.asList(new MetricTaglet(),
+			InlineTag.CODE, InlineTag.LITERAL));
+
+	/**
+	 * testing that nested comments get buffers of their own and that buffers
+	 * are reused
+	 */
+	@Test
+	public void testNesting() {
+		CommentBuffers buffers = new CommentBuffers();
+
+		StringBuilder outer = buffers.acquire();
+		outer.append("outer");
+		StringBuilder inner = buffers.acquire();
+		assertNotSame(inner, outer);
+		assertEquals(inner.length(), 0);
+		inner.append("inner");
+		buffers.release();
+		assertEquals(outer.toString(), "outer");
+		assertSame(buffers.acquire(), inner);
+		buffers.release();
+		buffers.release();
+
+		// deeper than the initial stack
+		List<StringBuilder> stack = new ArrayList<StringBuilder>();
+		for (int i = 0; i < 10; i++) {
+			stack.add(buffers.acquire());
+		}
+		assertSame(stack.get(0), outer);
+		for (int i = 0; i < 10; i++) {
+			buffers.release();
+		}
+
+		// an oversized buffer is not kept
+		buffers.acquire().append(new char[CommentBuffers.MAX_RETAINED + 1]);
+		buffers.release();
+		assertNotSame(buffers.acquire(), outer);
+		buffers.release();
+	}
+
+	/**
+	 * testing that comments render the same as concatenated taglet output
+	 */
+	@Test
+	public void testRender() {
+		Parser parser = new Parser(null);
+		Tag comment = MockTag.createBlockTag("@return", MockTag.createText("a "),
+				MockTag.createInlineTag("@code", "Map<K, V>"), MockTag.createText(" of "),
+				MockTag.createInlineTag("@literal", "<b>"), MockTag.createInlineTag("@metric", "keys"),
+				MockTag.createInlineTag("@unknown", "x"));
+
+		assertEquals(parser.parseComment(comment), render(parser, comment));
+		assertEquals(parser.parseComment(comment), "a <code>Map<K, V></code> of <b><metric>keys</metric>x");
+	}
+
+	/**
+	 * testing that threads rendering comments at once get the same output as
+	 * a single thread
+	 */
+	@Test
+	public void testThreads() throws Exception {
+		final Parser parser = new Parser(null);
+		parser.setXhtml(true);
+		final Tag comment = MockTag.createBlockTag("@return", MockTag.createText("<p>a "),
+				MockTag.createInlineTag("@code", "Map<K, V>"), MockTag.createText(" of <b>"),
+				MockTag.createInlineTag("@literal", "a<b && c>d"), MockTag.createText("<br>"));
+		final String expected = parser.parseComment(comment);
+		assertEquals(expected, "<p>a <code>Map&lt;K, V&gt;</code> of <b>a&lt;b &amp;&amp; c&gt;d<br/></b></p>");
+
+		final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						String output = parser.parseComment(comment);
+						if (!output.equals(expected)) {
+							failures.add(output);
+							return;
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(failures, Collections.emptyList());
+	}
+
+	/**
+	 * testing the bytes allocated per comment against a new buffer and
+	 * intermediate strings for every comment
+	 */
+	@Test
+	public void testAllocation() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			log.info("allocation per thread not available, skipped");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+			log.info("allocation per thread not available, skipped");
+			return;
+		}
+		long thread = Thread.currentThread().getId();
+
+		// a comment of about 2 KB, a third of its inline tags code
+		Tag[] inlineTags = new Tag[60];
+		for (int i = 0; i < inlineTags.length; i++) {
+			inlineTags[i] = i % 3 == 2 ? MockTag.createInlineTag("@code", "Map<String, List<Integer>>") : MockTag
+					.createText("the text between the inline tags of a comment ");
+		}
+		Tag comment = MockTag.createBlockTag("@return", inlineTags);
+		Parser parser = new Parser(null);
+
+		int rounds = 20000;
+		long baseline = Long.MAX_VALUE;
+		long buffered = Long.MAX_VALUE;
+		int length = 0;
+		for (int run = 0; run < 5; run++) {
+			long start = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < rounds; i++) {
+				length += render(parser, comment).length();
+			}
+			baseline = Math.min(baseline, threads.getThreadAllocatedBytes(thread) - start);
+
+			start = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < rounds; i++) {
+				length -= parser.parseComment(comment).length();
+			}
+			buffered = Math.min(buffered, threads.getThreadAllocatedBytes(thread) - start);
+		}
+
+		log.info("allocation per comment of " + parser.parseComment(comment).length() + " chars: new buffer "
+				+ baseline / rounds + " bytes, reused buffer " + buffered / rounds + " bytes");
+		assertEquals(length, 0);
+		assertTrue(buffered < baseline);
+	}
+
+	/**
+	 * Renders a comment into a new buffer from the returned taglet output.
+	 */
+	private static String render(Parser parser, Tag comment) {
+		StringBuilder builder = new StringBuilder();
+		for (Tag tag : comment.inlineTags()) {
+			Taglet taglet = tag.name() == TagletTable.TEXT ? null : taglets.get(tag.name());
+			builder.append(taglet != null ? taglet.getOutput(parser, tag, comment) : tag.text());
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,112 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the scope and package filter
+ */
+public class FilterTest extends AbstractTestParent {
+
+	private File createSources() throws Exception {
+		File sourceDirectory = createSourceDirectory("filter");
+		writeSource(sourceDirectory, "com.example.api", "Base", "public class Base {\n"
+				+ "  public void publicMethod() {}\n" + "  protected void protectedMethod() {}\n"
+				+ "  void packageMethod() {}\n" + "  private void privateMethod() {}\n" + "  private int privateField;\n"
+				+ "  public int publicField;\n" + "  private static class Nested {}\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.api", "Hidden", "class Hidden extends Base {}\n");
+		writeSource(sourceDirectory, "com.example.api", "Leaf", "public class Leaf extends Hidden {}\n");
+		writeSource(sourceDirectory, "com.example.internal", "Internal", "public class Internal {}\n");
+		return sourceDirectory;
+	}
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing that everything is parsed without options
+	 */
+	@Test
+	public void testNoFilter() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example" }, new String[] { "-dryrun" });
+
+		assertEquals(rootNode.getPackage().size(), 2);
+		Package packageNode = rootNode.getPackage().get(0);
+		assertEquals(packageNode.getName(), "com.example.api");
+		assertEquals(packageNode.getClazz().size(), 4);
+
+		Class base = findClass(packageNode, "Base");
+		assertEquals(base.getMethod().size(), 4);
+		assertEquals(base.getField().size(), 2);
+		assertEquals(base.getChild().size(), 1);
+		assertEquals(base.getChild().get(0).getName(), "Hidden");
+	}
+
+	/**
+	 * testing the public scope and an excluded package
+	 */
+	@Test
+	public void testPublicScope() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example" },
+				new String[] { "-dryrun", "-scope", "public", "-excludepackages", "com.example.int*" });
+
+		assertEquals(rootNode.getPackage().size(), 1);
+		Package packageNode = rootNode.getPackage().get(0);
+		assertEquals(packageNode.getName(), "com.example.api");
+		assertEquals(packageNode.getClazz().size(), 2);
+
+		Class base = findClass(packageNode, "Base");
+		assertEquals(base.getMethod().size(), 1);
+		assertEquals(base.getMethod().get(0).getName(), "publicMethod");
+		assertEquals(base.getField().size(), 1);
+		assertEquals(base.getField().get(0).getName(), "publicField");
+
+		// the package private class in between is not counted
+		assertEquals(base.getChild().size(), 1);
+		assertEquals(base.getChild().get(0).getName(), "Leaf");
+	}
+
+	/**
+	 * testing the protected scope and an included package
+	 */
+	@Test
+	public void testProtectedScope() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example" },
+				new String[] { "-dryrun", "-scope", "protected", "-includepackages", "com.example.api" });
+
+		assertEquals(rootNode.getPackage().size(), 1);
+		Class base = findClass(rootNode.getPackage().get(0), "Base");
+		assertEquals(base.getMethod().size(), 2);
+		assertEquals(base.getField().size(), 1);
+	}
+
+	/**
+	 * testing the accepted scope values
+	 */
+	@Test
+	public void testScopeValues() {
+		assertTrue(DocFilter.isValidScope("package"));
+		assertFalse(DocFilter.isValidScope("friends"));
+	}
+}
@@ -0,0 +1,199 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the child and implementation lists
+ */
+public class HierarchyTest extends AbstractTestParent {
+
+	private File createSources() throws Exception {
+		File sourceDirectory = createSourceDirectory("hierarchy");
+		writeSource(sourceDirectory, "com.example.shape", "Shape", "public interface Shape {}\n");
+		writeSource(sourceDirectory, "com.example.shape", "Polygon", "public interface Polygon extends Shape {}\n");
+		writeSource(sourceDirectory, "com.example.shape", "AbstractShape",
+				"public abstract class AbstractShape implements Shape {}\n");
+		writeSource(sourceDirectory, "com.example.shape", "Square",
+				"public class Square extends AbstractShape implements Polygon {}\n");
+		writeSource(sourceDirectory, "com.example.shape", "Circle", "public class Circle extends AbstractShape {}\n");
+		writeSource(sourceDirectory, "com.example.shape", "Color", "public enum Color { RED }\n");
+		return sourceDirectory;
+	}
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	private static Interface findInterface(Package packageNode, String name) {
+		for (Interface interfaceNode : packageNode.getInterface()) {
+			if (interfaceNode.getName().equals(name)) {
+				return interfaceNode;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing the child and implementation lists
+	 */
+	@Test
+	public void testHierarchy() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, new String[] { "-dryrun" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		Class abstractShape = findClass(packageNode, "AbstractShape");
+		assertEquals(abstractShape.getChild().size(), 2);
+		assertEquals(abstractShape.getChild().get(0).getName(), "Circle");
+		assertEquals(abstractShape.getChild().get(1).getName(), "Square");
+		assertEquals(findClass(packageNode, "Square").getChild().size(), 0);
+
+		Interface shape = findInterface(packageNode, "Shape");
+		assertEquals(shape.getChild().size(), 1);
+		assertEquals(shape.getChild().get(0).getName(), "Polygon");
+		assertEquals(shape.getImplementation().size(), 3);
+		assertEquals(shape.getImplementation().get(0).getName(), "AbstractShape");
+		assertEquals(shape.getImplementation().get(1).getName(), "Circle");
+		assertEquals(shape.getImplementation().get(2).getName(), "Square");
+
+		Interface polygon = findInterface(packageNode, "Polygon");
+		assertEquals(polygon.getImplementation().size(), 1);
+		assertEquals(polygon.getImplementation().get(0).getName(), "Square");
+	}
+
+	/**
+	 * testing that no lists are written with -nohierarchy
+	 */
+	@Test
+	public void testNoHierarchy() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, new String[] { "-dryrun", "-nohierarchy" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		assertEquals(findClass(packageNode, "AbstractShape").getChild().size(), 0);
+		assertEquals(findInterface(packageNode, "Shape").getChild().size(), 0);
+		assertEquals(findInterface(packageNode, "Shape").getImplementation().size(), 0);
+		assertEquals(packageNode.getClazz().size(), 3);
+	}
+
+	/**
+	 * testing that unchanged types are taken from the hierarchy index and
+	 * changed types are read again
+	 */
+	@Test
+	public void testHierarchyIndex() throws Exception {
+		File sourceDirectory = createSources();
+		File indexFile = new File(sourceDirectory, "hierarchy.idx");
+		String[] arguments = new String[] { "-dryrun", "-hierarchyindex", indexFile.getPath() };
+
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, arguments);
+		assertEquals(findClass(rootNode.getPackage().get(0), "AbstractShape").getChild().size(), 2);
+		assertEquals(findInterface(rootNode.getPackage().get(0), "Shape").getImplementation().size(), 3);
+
+		// tamper with the facts of an unchanged type, the next run has to use them
+		StringBuilder index = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(indexFile));
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			if (line.startsWith("T\tcom.example.shape.Circle\t")) {
+				String[] columns = line.split("\t", -1);
+				columns[5] = "";
+				columns[7] = "";
+				StringBuilder tampered = new StringBuilder(columns[0]);
+				for (int i = 1; i < columns.length; i++) {
+					tampered.append('\t').append(columns[i]);
+				}
+				line = tampered.toString();
+			}
+			index.append(line).append('\n');
+		}
+		reader.close();
+		Writer writer = new FileWriter(indexFile);
+		writer.write(index.toString());
+		writer.close();
+
+		rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, arguments);
+		Package packageNode = rootNode.getPackage().get(0);
+		assertEquals(findClass(packageNode, "AbstractShape").getChild().size(), 1);
+		assertEquals(findInterface(packageNode, "Shape").getImplementation().size(), 2);
+
+		// a changed super type makes its sub-types read again
+		writeSource(sourceDirectory, "com.example.shape", "AbstractShape",
+				"public abstract class AbstractShape implements Shape, Cloneable {}\n");
+		rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, arguments);
+		packageNode = rootNode.getPackage().get(0);
+		assertEquals(findClass(packageNode, "AbstractShape").getChild().size(), 2);
+		assertEquals(findInterface(packageNode, "Shape").getImplementation().size(), 3);
+
+		// a new sub-type is added
+		writeSource(sourceDirectory, "com.example.shape", "Triangle",
+				"public class Triangle extends AbstractShape implements Polygon {}\n");
+		rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, arguments);
+		packageNode = rootNode.getPackage().get(0);
+		assertEquals(findClass(packageNode, "AbstractShape").getChild().size(), 3);
+		assertEquals(findInterface(packageNode, "Polygon").getImplementation().size(), 2);
+	}
+
+	/**
+	 * testing the edge list written with -hierarchyfile
+	 */
+	@Test
+	public void testHierarchyFile() throws Exception {
+		File sourceDirectory = createSources();
+		File hierarchyFile = new File(sourceDirectory, "hierarchy.txt");
+		executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shape" }, new String[] { "-dryrun", "-hierarchyfile", hierarchyFile.getPath() });
+
+		Map<String, String> names = new HashMap<String, String>();
+		List<String> edges = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(hierarchyFile));
+		assertEquals(reader.readLine(), "# xml-doclet hierarchy 1");
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			String[] columns = line.split("\t");
+			if (columns[0].equals("T")) {
+				names.put(columns[1], columns[2]);
+			} else {
+				edges.add(columns[0] + " " + names.get(columns[1]) + " " + names.get(columns[2]));
+			}
+		}
+		reader.close();
+
+		assertTrue(edges.contains("C com.example.shape.AbstractShape com.example.shape.Circle"));
+		assertTrue(edges.contains("C com.example.shape.AbstractShape com.example.shape.Square"));
+		assertTrue(edges.contains("C java.lang.Object com.example.shape.AbstractShape"));
+		assertTrue(edges.contains("I com.example.shape.Shape com.example.shape.Polygon"));
+		assertTrue(edges.contains("M com.example.shape.Polygon com.example.shape.Square"));
+		assertTrue(edges.contains("M com.example.shape.Shape com.example.shape.Circle"));
+		assertTrue(edges.contains("E java.lang.Enum com.example.shape.Color"));
+		assertEquals(edges.indexOf("C com.example.shape.AbstractShape com.example.shape.Circle") + 1,
+				edges.indexOf("C com.example.shape.AbstractShape com.example.shape.Square"));
+	}
+}
@@ -0,0 +1,94 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for inherited comments
+ */
+public class InheritDocTest extends AbstractTestParent {
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing that comments are inherited through a chain of overriding
+	 * methods and by many implementors of one method
+	 */
+	@Test
+	public void testInheritDoc() throws Exception {
+		File sourceDirectory = createSourceDirectory("inheritdoc");
+		writeSource(sourceDirectory, "com.example.inherit", "Base", "public interface Base {\n"
+				+ "  /** Runs the base. */\n" + "  void run();\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.inherit", "Middle", "public class Middle implements Base {\n"
+				+ "  /** {@inheritDoc} More. */\n" + "  public void run() {}\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.inherit", "Leaf", "public class Leaf extends Middle {\n"
+				+ "  /** {@inheritDoc} */\n" + "  public void run() {}\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.inherit", "Plain", "public class Plain implements Base {\n"
+				+ "  /** Own comment. */\n" + "  public void run() {}\n" + "}\n");
+		for (int i = 0; i < 20; i++) {
+			writeSource(sourceDirectory, "com.example.inherit", "Impl" + i, "public class Impl" + i
+					+ " implements Base {\n" + "  /** {@inheritDoc} */\n" + "  public void run() {}\n" + "}\n");
+		}
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.inherit" }, new String[] { "-dryrun" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		assertEquals(findClass(packageNode, "Middle").getMethod().get(0).getComment(), "Runs the base. More.");
+		assertEquals(findClass(packageNode, "Leaf").getMethod().get(0).getComment(), "Runs the base. More.");
+		assertEquals(findClass(packageNode, "Plain").getMethod().get(0).getComment(), "Own comment.");
+		for (int i = 0; i < 20; i++) {
+			assertEquals(findClass(packageNode, "Impl" + i).getMethod().get(0).getComment(), "Runs the base.");
+		}
+	}
+
+	/**
+	 * testing that the text of @param, @return and @throws tags is inherited
+	 * from the matching tag up the hierarchy
+	 */
+	@Test
+	public void testInheritTags() throws Exception {
+		File sourceDirectory = createSourceDirectory("inheritdoc-tags");
+		writeSource(sourceDirectory, "com.example.inherit", "Base", "public interface Base {\n"
+				+ "  /**\n" + "   * Runs the base.\n" + "   * @param count the number of runs\n"
+				+ "   * @param name the name\n" + "   * @return the result\n"
+				+ "   * @throws java.io.IOException if it fails\n" + "   */\n"
+				+ "  int run(int count, String name) throws java.io.IOException;\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.inherit", "Middle", "public class Middle implements Base {\n"
+				+ "  /**\n" + "   * {@inheritDoc}\n" + "   * @param count {@inheritDoc}, at least one\n"
+				+ "   * @return {@inheritDoc}\n" + "   */\n"
+				+ "  public int run(int count, String name) throws java.io.IOException { return 0; }\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.inherit", "Leaf", "public class Leaf extends Middle {\n"
+				+ "  /**\n" + "   * {@inheritDoc}\n" + "   * @param count {@inheritDoc}\n"
+				+ "   * @param name {@inheritDoc}\n" + "   * @throws java.io.IOException {@inheritDoc}\n" + "   */\n"
+				+ "  public int run(int count, String name) throws java.io.IOException { return 0; }\n" + "}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.inherit" }, new String[] { "-dryrun" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		Method middle = findClass(packageNode, "Middle").getMethod().get(0);
+		assertEquals(middle.getComment(), "Runs the base.");
+		assertEquals(middle.getParam().get(0).getComment(), "the number of runs, at least one");
+		assertEquals(middle.getReturn().getComment(), "the result");
+
+		Method leaf = findClass(packageNode, "Leaf").getMethod().get(0);
+		assertEquals(leaf.getComment(), "Runs the base.");
+		assertEquals(leaf.getParam().get(0).getComment(), "the number of runs, at least one");
+		assertEquals(leaf.getParam().get(1).getComment(), "the name");
+		assertEquals(leaf.getThrows().get(0).getComment(), "if it fails");
+	}
+}
@@ -0,0 +1,70 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Link;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for @see tags and inline links
+ */
+public class LinkTest extends AbstractTestParent {
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing that links to the same target and text share one node, and that
+	 * inline links render the same node
+	 */
+	@Test
+	public void testLinks() throws Exception {
+		File sourceDirectory = createSourceDirectory("link");
+		writeSource(sourceDirectory, "com.example.link", "Target", "public class Target {\n"
+				+ "  public void run() {}\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.link", "First", "/**\n"
+				+ " * Uses {@link Target} and {@linkplain Target#run() running}.\n" + " * @see Target\n"
+				+ " * @see Target#run()\n" + " * @see Target the target\n" + " * @see java.util.List\n" + " */\n"
+				+ "public class First {}\n");
+		writeSource(sourceDirectory, "com.example.link", "Second", "/**\n" + " * Uses {@link Target} again.\n"
+				+ " * @see Target\n" + " */\n" + "public class Second {}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.link" }, new String[] { "-dryrun" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		Class first = findClass(packageNode, "First");
+		List<Link> links = first.getLink();
+		assertEquals(links.get(0).getText(), "Target");
+		assertEquals(links.get(0).getHref(), "/com.example.link/Target/");
+		assertEquals(links.get(1).getText(), "Target#run()");
+		assertEquals(links.get(1).getHref(), "/com.example.link/Target/#run%28%29");
+		assertEquals(links.get(2).getText(), "the target");
+		assertEquals(links.get(2).getHref(), "/com.example.link/Target/");
+		assertEquals(links.get(3).getText(), "java.util.List");
+		assertNull(links.get(3).getHref());
+		assertNotSame(links.get(2), links.get(0));
+
+		Class second = findClass(packageNode, "Second");
+		assertSame(second.getLink().get(0), links.get(0));
+		assertEquals(first.getComment(), "Uses <code><link href=\"/com.example.link/Target/\" text=\"Target\"/></code>"
+				+ " and <link href=\"/com.example.link/Target/#run%28%29\" text=\"running\"/>.");
+		assertEquals(second.getComment(),
+				"Uses <code><link href=\"/com.example.link/Target/\" text=\"Target\"/></code> again.");
+	}
+}
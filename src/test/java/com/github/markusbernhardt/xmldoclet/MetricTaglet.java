@@ -0,0 +1,25 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import com.sun.javadoc.Tag;
+
+/**
+ * A custom inline tag registered as a service for the taglet tests, rendering
+ * <code>{@metric name}</code> as a metric element.
+ */
+public class MetricTaglet implements Taglet {
+
+	@Override
+	public String getName() {
+		return "@metric";
+	}
+
+	@Override
+	public String getOutput(Parser parser, Tag tag) {
+		return "<metric>" + tag.text() + "</metric>";
+	}
+
+	@Override
+	public String getOutput(Parser parser, Tag tag, Tag parent) {
+		return getOutput(parser, tag);
+	}
+}
@@ -0,0 +1,127 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.TypeVariable;
+
+/**
+ * Builds synthetic {@link ClassDoc}s for hierarchy tests which would be too
+ * large or too deep to run through javadoc.
+ *
+ * <p>The classes are public and not included in the run, so they are visible
+ * to {@link ClassTree} without a filter. Only the methods needed to build a
+ * tree are answered, all others return a default value.
+ */
+public class MockClassDoc implements InvocationHandler {
+
+	private final String name;
+	private final boolean isInterface;
+	private final ClassDoc superclass;
+	private final List<ClassDoc> interfaces = new ArrayList<ClassDoc>();
+	private ClassDoc proxy;
+
+	private MockClassDoc(String name, boolean isInterface, ClassDoc superclass) {
+		this.name = name;
+		this.isInterface = isInterface;
+		this.superclass = superclass;
+	}
+
+	/**
+	 * Creates a class.
+	 *
+	 * @param name
+	 *            The qualified name
+	 * @param superclass
+	 *            The super class, <code>null</code> for java.lang.Object
+	 * @param interfaces
+	 *            The directly implemented interfaces
+	 * @return the class
+	 */
+	public static ClassDoc createClass(String name, ClassDoc superclass, ClassDoc... interfaces) {
+		return create(name, false, superclass, interfaces);
+	}
+
+	/**
+	 * Creates an interface.
+	 *
+	 * @param name
+	 *            The qualified name
+	 * @param interfaces
+	 *            The directly extended interfaces
+	 * @return the interface
+	 */
+	public static ClassDoc createInterface(String name, ClassDoc... interfaces) {
+		return create(name, true, null, interfaces);
+	}
+
+	private static ClassDoc create(String name, boolean isInterface, ClassDoc superclass, ClassDoc[] interfaces) {
+		MockClassDoc handler = new MockClassDoc(name, isInterface, superclass);
+		for (ClassDoc interfaceDoc : interfaces) {
+			handler.interfaces.add(interfaceDoc);
+		}
+		handler.proxy = (ClassDoc) Proxy.newProxyInstance(MockClassDoc.class.getClassLoader(),
+				new java.lang.Class<?>[] { ClassDoc.class }, handler);
+		return handler.proxy;
+	}
+
+	/**
+	 * Adds a directly implemented or extended interface after creation.
+	 *
+	 * @param classDoc
+	 *            A class or interface created by this helper
+	 * @param interfaceDoc
+	 *            The interface to add
+	 */
+	public static void addInterface(ClassDoc classDoc, ClassDoc interfaceDoc) {
+		((MockClassDoc) Proxy.getInvocationHandler(classDoc)).interfaces.add(interfaceDoc);
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		String methodName = method.getName();
+		if (methodName.equals("equals")) {
+			return proxy == args[0];
+		} else if (methodName.equals("hashCode")) {
+			return System.identityHashCode(proxy);
+		} else if (methodName.equals("compareTo")) {
+			return name.compareTo(((ClassDoc) args[0]).qualifiedName());
+		} else if (methodName.equals("toString") || methodName.equals("name") || methodName.equals("typeName")
+				|| methodName.equals("simpleTypeName") || methodName.equals("qualifiedName")
+				|| methodName.equals("qualifiedTypeName")) {
+			return name;
+		} else if (methodName.equals("dimension")) {
+			return "";
+		} else if (methodName.equals("isInterface")) {
+			return isInterface;
+		} else if (methodName.equals("isClass") || methodName.equals("isOrdinaryClass")) {
+			return !isInterface;
+		} else if (methodName.equals("isPublic")) {
+			return true;
+		} else if (methodName.equals("modifierSpecifier")) {
+			return Modifier.PUBLIC;
+		} else if (methodName.equals("asClassDoc")) {
+			return this.proxy;
+		} else if (methodName.equals("superclass") || methodName.equals("superclassType")) {
+			return superclass;
+		} else if (methodName.equals("interfaces") || methodName.equals("interfaceTypes")) {
+			return interfaces.toArray(new ClassDoc[interfaces.size()]);
+		} else if (methodName.equals("typeParameters")) {
+			return new TypeVariable[0];
+		} else if (method.getReturnType() == Boolean.TYPE) {
+			return false;
+		} else if (method.getReturnType() == Integer.TYPE) {
+			return 0;
+		} else if (method.getReturnType().isArray()
+				&& Type.class.isAssignableFrom(method.getReturnType().getComponentType())) {
+			return java.lang.reflect.Array.newInstance(method.getReturnType().getComponentType(), 0);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,86 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.sun.javadoc.Tag;
+
+/**
+ * Builds synthetic {@link Tag}s for comment rendering tests which measure the
+ * parser alone, without the cost of a javadoc run.
+ *
+ * <p>The tags have no holder. Only the methods needed to render a comment are
+ * answered, all others return <code>null</code>.
+ */
+public class MockTag implements InvocationHandler {
+
+	private final String name;
+	private final String text;
+	private final Tag[] inlineTags;
+
+	private MockTag(String name, String text, Tag[] inlineTags) {
+		this.name = name;
+		this.text = text;
+		this.inlineTags = inlineTags;
+	}
+
+	/**
+	 * Creates a run of plain text.
+	 *
+	 * @param text
+	 *            The text
+	 * @return the tag
+	 */
+	public static Tag createText(String text) {
+		return create(TagletTable.TEXT, text, new Tag[0]);
+	}
+
+	/**
+	 * Creates an inline tag.
+	 *
+	 * @param name
+	 *            The name, including the leading '@'
+	 * @param text
+	 *            The text of the tag
+	 * @return the tag
+	 */
+	public static Tag createInlineTag(String name, String text) {
+		return create(name, text, new Tag[0]);
+	}
+
+	/**
+	 * Creates a block tag holding the given inline tags.
+	 *
+	 * @param name
+	 *            The name, including the leading '@'
+	 * @param inlineTags
+	 *            The text and inline tags of the block tag
+	 * @return the tag
+	 */
+	public static Tag createBlockTag(String name, Tag... inlineTags) {
+		return create(name, null, inlineTags);
+	}
+
+	private static Tag create(String name, String text, Tag[] inlineTags) {
+		return (Tag) Proxy.newProxyInstance(MockTag.class.getClassLoader(), new java.lang.Class<?>[] { Tag.class },
+				new MockTag(name, text, inlineTags));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		String methodName = method.getName();
+		if (methodName.equals("equals")) {
+			return proxy == args[0];
+		} else if (methodName.equals("hashCode")) {
+			return System.identityHashCode(proxy);
+		} else if (methodName.equals("name") || methodName.equals("kind")) {
+			return name;
+		} else if (methodName.equals("text") || methodName.equals("toString")) {
+			return text;
+		} else if (methodName.equals("inlineTags") || methodName.equals("firstSentenceTags")) {
+			return inlineTags;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,119 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Constructor;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Interface;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for scope and modifier flags
+ */
+public class ModifierTest extends AbstractTestParent {
+
+	private Package parseSources() throws Exception {
+		File sourceDirectory = createSourceDirectory("modifier");
+		writeSource(sourceDirectory, "com.example.modifier", "Flags", "public abstract class Flags {\n"
+				+ "  protected Flags(String... values) {}\n" + "  private Flags() {}\n"
+				+ "  public abstract void abstractMethod();\n" + "  protected static final native void nativeMethod();\n"
+				+ "  synchronized void packageMethod(int... values) {}\n" + "  private volatile int volatileField;\n"
+				+ "  protected static final transient int transientField = 1;\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.modifier", "Contract", "interface Contract {\n"
+				+ "  void implicitMethod();\n" + "}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.modifier" }, new String[] { "-dryrun" });
+		return rootNode.getPackage().get(0);
+	}
+
+	private static Method findMethod(Class classNode, String name) {
+		for (Method method : classNode.getMethod()) {
+			if (method.getName().equals(name)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	private static Field findField(Class classNode, String name) {
+		for (Field field : classNode.getField()) {
+			if (field.getName().equals(name)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing the flags of a class and its members
+	 */
+	@Test
+	public void testClassModifiers() throws Exception {
+		Class classNode = parseSources().getClazz().get(0);
+		assertEquals(classNode.getScope(), "public");
+		assertTrue(classNode.isAbstract());
+
+		Constructor constructor = classNode.getConstructor().get(0);
+		Constructor privateConstructor = classNode.getConstructor().get(1);
+		if (constructor.getScope().equals("private")) {
+			Constructor swap = constructor;
+			constructor = privateConstructor;
+			privateConstructor = swap;
+		}
+		assertEquals(constructor.getScope(), "protected");
+		assertTrue(constructor.isVarArgs());
+		assertFalse(constructor.isSynchronized());
+		assertEquals(privateConstructor.getScope(), "private");
+		assertFalse(privateConstructor.isVarArgs());
+
+		Method method = findMethod(classNode, "abstractMethod");
+		assertEquals(method.getScope(), "public");
+		assertTrue(method.isAbstract());
+		assertFalse(method.isStatic());
+
+		method = findMethod(classNode, "nativeMethod");
+		assertEquals(method.getScope(), "protected");
+		assertTrue(method.isNative());
+		assertTrue(method.isStatic());
+		assertTrue(method.isFinal());
+		assertFalse(method.isAbstract());
+
+		method = findMethod(classNode, "packageMethod");
+		assertEquals(method.getScope(), "");
+		assertTrue(method.isSynchronized());
+		assertTrue(method.isVarArgs());
+
+		Field field = findField(classNode, "volatileField");
+		assertEquals(field.getScope(), "private");
+		assertTrue(field.isVolatile());
+		assertFalse(field.isTransient());
+
+		field = findField(classNode, "transientField");
+		assertEquals(field.getScope(), "protected");
+		assertTrue(field.isTransient());
+		assertTrue(field.isStatic());
+		assertTrue(field.isFinal());
+	}
+
+	/**
+	 * testing that the implicit abstract of interface methods is kept
+	 */
+	@Test
+	public void testInterfaceModifiers() throws Exception {
+		Interface interfaceNode = parseSources().getInterface().get(0);
+		assertEquals(interfaceNode.getScope(), "");
+
+		Method method = interfaceNode.getMethod().get(0);
+		assertEquals(method.getScope(), "public");
+		assertTrue(method.isAbstract());
+	}
+}
@@ -0,0 +1,149 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.SharedComment;
+
+/**
+ * Unit test group for the deduplication and sharing of comments
+ */
+public class SharedCommentTest extends AbstractTestParent {
+
+	private final static String LICENSE = "/**\n * Generated code, do not edit.\n * <p>See the <b>license</b> "
+			+ "for details.\n */\n";
+
+	private static File createSources() throws Exception {
+		File sourceDirectory = createSourceDirectory("shared");
+		writeSource(sourceDirectory, "com.example.shared", "First", LICENSE + "public class First {\n" + LICENSE
+				+ "  public void run() {}\n" + "  /** Adds a value.\n   * @param value the value */\n"
+				+ "  public void add(int value) {}\n" + "  /** Adds a value.\n   * @param value the value */\n"
+				+ "  public void add(long value) {}\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.shared", "Second", LICENSE + "public class Second {\n" + LICENSE
+				+ "  public void run() {}\n" + "  public void undocumented() {}\n"
+				+ "  /** Unique. */\n  public void unique() {}\n" + "}\n");
+		return sourceDirectory;
+	}
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	private static Method findMethod(Class classNode, String name, String type) {
+		for (Method methodNode : classNode.getMethod()) {
+			if (methodNode.getName().equals(name)
+					&& (type == null || methodNode.getParam().get(0).getType().getFull().equals(type))) {
+				return methodNode;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing that equal comments share a single string
+	 */
+	@Test
+	public void testDeduplicate() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shared" }, new String[] { "-dryrun" });
+		Package packageNode = rootNode.getPackage().get(0);
+		Class first = findClass(packageNode, "First");
+		Class second = findClass(packageNode, "Second");
+
+		assertEquals(first.getComment(), "Generated code, do not edit.\n <p>See the <b>license</b> for details.");
+		assertSame(second.getComment(), first.getComment());
+		assertSame(findMethod(first, "run", null).getComment(), first.getComment());
+		assertSame(findMethod(second, "run", null).getComment(), first.getComment());
+		assertSame(findMethod(first, "add", "long").getComment(), findMethod(first, "add", "int").getComment());
+		assertSame(findMethod(first, "add", "long").getParam().get(0).getComment(), findMethod(first, "add", "int")
+				.getParam().get(0).getComment());
+		assertEquals(rootNode.getSharedComment().size(), 0);
+	}
+
+	/**
+	 * testing that repeated comments are emitted once and referenced
+	 */
+	@Test
+	public void testSharedComments() throws Exception {
+		File sourceDirectory = createSources();
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shared" }, new String[] { "-dryrun", "-sharedcomments" });
+		Package packageNode = rootNode.getPackage().get(0);
+		Class first = findClass(packageNode, "First");
+		Class second = findClass(packageNode, "Second");
+
+		Map<String, String> comments = new HashMap<String, String>();
+		for (SharedComment sharedComment : rootNode.getSharedComment()) {
+			comments.put(sharedComment.getId(), sharedComment.getValue());
+		}
+		// the license, the overloads and their parameter
+		assertEquals(comments.size(), 3);
+		assertEquals(rootNode.getSharedComment().get(0).getId(), "c1");
+
+		assertNull(first.getComment());
+		assertEquals(comments.get(first.getCommentRef()),
+				"Generated code, do not edit.\n <p>See the <b>license</b> for details.");
+		assertEquals(second.getCommentRef(), first.getCommentRef());
+		assertEquals(findMethod(second, "run", null).getCommentRef(), first.getCommentRef());
+
+		Method addInt = findMethod(first, "add", "int");
+		Method addLong = findMethod(first, "add", "long");
+		assertNull(addInt.getComment());
+		assertEquals(comments.get(addInt.getCommentRef()), "Adds a value.");
+		assertEquals(addLong.getCommentRef(), addInt.getCommentRef());
+		assertEquals(comments.get(addLong.getParam().get(0).getCommentRef()), "the value");
+
+		// unique and empty comments stay in place
+		Method unique = findMethod(second, "unique", null);
+		assertEquals(unique.getComment(), "Unique.");
+		assertNull(unique.getCommentRef());
+		Method undocumented = findMethod(second, "undocumented", null);
+		assertEquals(undocumented.getComment(), "");
+		assertNull(undocumented.getCommentRef());
+	}
+
+	/**
+	 * testing that a spilled run writes the same shared comments as a normal
+	 * run
+	 */
+	@Test
+	public void testSpilledSharedComments() throws Exception {
+		File sourceDirectory = createSources();
+		File outputDirectory = createSourceDirectory("shared");
+
+		executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shared" }, new String[] { "-d", outputDirectory.getPath(), "-filename",
+						"plain.xml", "-sharedcomments" });
+		executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.shared" }, new String[] { "-d", outputDirectory.getPath(), "-filename",
+						"spilled.xml", "-sharedcomments", "-spillthreshold", "0" });
+
+		String plain = normalize(new File(outputDirectory, "plain.xml"));
+		String spilled = normalize(new File(outputDirectory, "spilled.xml"));
+		assertEquals(spilled, plain);
+
+		Root rootNode = (Root) JAXBContext.newInstance(Root.class).createUnmarshaller()
+				.unmarshal(new StringReader(plain));
+		assertEquals(rootNode.getSharedComment().size(), 3);
+	}
+}
@@ -0,0 +1,114 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the skeleton-only mode
+ */
+public class SkeletonTest extends AbstractTestParent {
+
+	private final static Logger log = LoggerFactory.getLogger(SkeletonTest.class);
+
+	/**
+	 * Generates classes with long comments, links and block tags on every
+	 * member.
+	 */
+	private File createSources(int classes) throws Exception {
+		File sourceDirectory = createSourceDirectory("skeleton");
+		for (int i = 0; i < classes; i++) {
+			StringBuilder body = new StringBuilder();
+			body.append("/**\n * Generated class with a {@link java.util.List list} and {@code code}.\n");
+			body.append(" *\n * @author author\n * @since 1.0\n * @see java.lang.Object\n */\n");
+			body.append("public class Generated" + i + (i > 0 ? " extends Generated" + (i - 1) : "") + " {\n");
+			for (int j = 0; j < 20; j++) {
+				body.append("  /**\n   * Does things with {@link java.lang.String} values, see {@link #method" + j
+						+ "(String)}.\n   * <p>A second paragraph with {@code code} and {@literal <literal>}.\n");
+				body.append("   *\n   * @param value the value\n   * @return the result\n");
+				body.append("   * @throws java.io.IOException never\n   * @deprecated use something else\n   */\n");
+				body.append("  public String method" + j + "(String value) throws java.io.IOException { return value; }\n");
+			}
+			body.append("}\n");
+			writeSource(sourceDirectory, "com.example.skeleton", "Generated" + i, body.toString());
+		}
+		return sourceDirectory;
+	}
+
+	/**
+	 * testing that the structure is kept while all comments are skipped
+	 */
+	@Test
+	public void testSkeleton() throws Exception {
+		File sourceDirectory = createSources(2);
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.skeleton" }, new String[] { "-dryrun", "-nocomment" });
+
+		Class classNode = null;
+		for (Class c : rootNode.getPackage().get(0).getClazz()) {
+			if (c.getName().equals("Generated1")) {
+				classNode = c;
+			}
+		}
+		Method method = classNode.getMethod().get(0);
+
+		assertNull(rootNode.getPackage().get(0).getComment());
+		assertNull(classNode.getComment());
+		assertEquals(classNode.getAuthor().size(), 0);
+		assertEquals(classNode.getLink().size(), 0);
+		assertNull(classNode.getSince());
+		assertEquals(classNode.getClazz().getName(), "Generated0");
+		assertEquals(classNode.getMethod().size(), 20);
+
+		assertNull(method.getComment());
+		assertNull(method.getDeprecated());
+		assertEquals(method.getParam().size(), 1);
+		assertNull(method.getParam().get(0).getComment());
+		assertEquals(method.getThrows().size(), 1);
+		assertEquals(method.getThrows().get(0).getType().getFull(), "java.io.IOException");
+		assertNull(method.getThrows().get(0).getComment());
+		assertEquals(method.getReturn().getType().getFull(), "java.lang.String");
+		assertNull(method.getReturn().getComment());
+	}
+
+	/**
+	 * compares a full run with a skeleton run on the same input
+	 */
+	@Test
+	public void testBenchmark() throws Exception {
+		File sourceDirectory = createSources(100);
+		String[] sourcePaths = new String[] { sourceDirectory.getPath() };
+		String[] subPackages = new String[] { "com.example.skeleton" };
+
+		// warm up
+		executeJavadoc(null, sourcePaths, null, null, subPackages, new String[] { "-dryrun" });
+		executeJavadoc(null, sourcePaths, null, null, subPackages, new String[] { "-dryrun", "-nocomment" });
+
+		long full = 0;
+		long skeleton = 0;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			Root fullRoot = executeJavadoc(null, sourcePaths, null, null, subPackages, new String[] { "-dryrun" });
+			full += System.nanoTime() - start;
+			assertNotNull(fullRoot.getPackage().get(0).getClazz().get(0).getComment());
+
+			start = System.nanoTime();
+			Root skeletonRoot = executeJavadoc(null, sourcePaths, null, null, subPackages, new String[] { "-dryrun",
+					"-nocomment" });
+			skeleton += System.nanoTime() - start;
+			assertNull(skeletonRoot.getPackage().get(0).getClazz().get(0).getComment());
+		}
+
+		log.info("full run: " + full / 3000000 + " ms, skeleton run: " + skeleton / 3000000 + " ms");
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import javax.xml.bind.JAXBContext;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for spilling finished packages to disk
+ */
+public class SpillTest extends AbstractTestParent {
+
+	/**
+	 * testing the store on its own
+	 */
+	@Test
+	public void testPackageStore() throws Exception {
+		PackageStore packageStore = new PackageStore(0);
+		for (String name : new String[] { "com.example.b", "com.example.a" }) {
+			Package packageNode = new Package();
+			packageNode.setName(name);
+			packageStore.add(packageNode);
+		}
+		assertEquals(packageStore.getSpilledCount(), 2);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		packageStore.write(outputStream, "UTF-8");
+
+		Root rootNode = (Root) JAXBContext.newInstance(Root.class).createUnmarshaller()
+				.unmarshal(new ByteArrayInputStream(outputStream.toByteArray()));
+		assertEquals(rootNode.getPackage().size(), 2);
+		assertEquals(rootNode.getPackage().get(0).getName(), "com.example.b");
+		assertEquals(rootNode.getPackage().get(1).getName(), "com.example.a");
+	}
+
+	/**
+	 * testing that a spilled run writes the same document as a normal run
+	 */
+	@Test
+	public void testSpilledOutput() throws Exception {
+		File outputDirectory = createSourceDirectory("spill");
+
+		executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" }, new String[] {
+				"-d", outputDirectory.getPath(), "-filename", "plain.xml" });
+		Root rootNode = executeJavadoc(".", new String[] { "./src/test/java" }, null, null, new String[] { "com" },
+				new String[] { "-d", outputDirectory.getPath(), "-filename", "spilled.xml", "-spillthreshold", "0" });
+
+		// all packages went to the store
+		assertEquals(rootNode.getPackage().size(), 0);
+
+		String plain = normalize(new File(outputDirectory, "plain.xml"));
+		String spilled = normalize(new File(outputDirectory, "spilled.xml"));
+		assertEquals(spilled, plain);
+	}
+}
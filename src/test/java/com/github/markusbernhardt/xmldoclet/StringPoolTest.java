@@ -0,0 +1,125 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.annotation.XmlAttribute;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the string pool of the documentation model
+ */
+public class StringPoolTest extends AbstractTestParent {
+
+	private final static Logger log = LoggerFactory.getLogger(StringPoolTest.class);
+
+	/**
+	 * testing the pool itself
+	 */
+	@Test
+	public void testIntern() {
+		StringPool pool = new StringPool();
+		String first = pool.intern(new String("java.lang.String"));
+
+		assertSame(first, pool.intern(new String("java.lang.String")));
+		assertEquals(pool.intern(null), null);
+		assertEquals(pool.size(), 1);
+	}
+
+	/**
+	 * testing the retained size of the attribute values on a generated corpus
+	 */
+	@Test
+	public void testFootprint() throws Exception {
+		File sourceDirectory = createSourceDirectory("stringpool");
+		for (int i = 0; i < 100; i++) {
+			StringBuilder body = new StringBuilder();
+			body.append("import java.util.List;\n\n");
+			body.append("/**\n * Generated class.\n *\n * @since 1.0\n * @version 2\n */\n");
+			body.append("public class Generated" + i + " {\n");
+			for (int j = 0; j < 20; j++) {
+				body.append("  /** @since 1.0 */\n");
+				body.append("  public List<String> field" + j + ";\n");
+				body.append("  public String method" + j + "(String value, List<String> values) { return value; }\n");
+			}
+			body.append("}\n");
+			writeSource(sourceDirectory, "com.example.generated", "Generated" + i, body.toString());
+		}
+
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.generated" }, new String[] { "-dryrun" });
+
+		Map<String, Integer> references = new IdentityHashMap<String, Integer>();
+		collectAttributes(rootNode, references, new IdentityHashMap<Object, Boolean>());
+
+		int count = 0;
+		long naive = 0;
+		long pooled = 0;
+		Set<String> values = new HashSet<String>();
+		for (Map.Entry<String, Integer> entry : references.entrySet()) {
+			count += entry.getValue();
+			naive += retainedSize(entry.getKey()) * entry.getValue();
+			pooled += retainedSize(entry.getKey());
+			values.add(entry.getKey());
+		}
+
+		log.info("attribute values: " + count + " references, " + references.size() + " instances, naive "
+				+ naive + " bytes, pooled " + pooled + " bytes");
+
+		// every equal value is backed by exactly one instance
+		assertEquals(values.size(), references.size());
+		assertTrue(pooled * 4 < naive);
+	}
+
+	/**
+	 * Estimated shallow size of a string including its character array.
+	 */
+	private static long retainedSize(String value) {
+		return 24 + 16 + 2 * value.length();
+	}
+
+	private static void collectAttributes(Object node, Map<String, Integer> references, Map<Object, Boolean> visited)
+			throws IllegalAccessException {
+		if (node == null || visited.put(node, Boolean.TRUE) != null) {
+			return;
+		}
+		if (node instanceof Collection) {
+			for (Object element : (Collection<?>) node) {
+				collectAttributes(element, references, visited);
+			}
+			return;
+		}
+		if (!node.getClass().getName().startsWith("com.github.markusbernhardt.xmldoclet.xjc.")) {
+			return;
+		}
+		for (java.lang.reflect.Field field : node.getClass().getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+			field.setAccessible(true);
+			Object value = field.get(node);
+			if (value instanceof String) {
+				if (field.getAnnotation(XmlAttribute.class) != null) {
+					Integer seen = references.get(value);
+					references.put((String) value, seen == null ? 1 : seen + 1);
+				}
+			} else {
+				collectAttributes(value, references, visited);
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.List;
+
+import javax.xml.bind.JAXBElement;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.CommentBody;
+import com.github.markusbernhardt.xmldoclet.xjc.Link;
+import com.github.markusbernhardt.xmldoclet.xjc.Method;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+import com.github.markusbernhardt.xmldoclet.xjc.TagletOutput;
+
+/**
+ * Unit test group for the structured comment bodies
+ */
+public class StructuredCommentTest extends AbstractTestParent {
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Describes the nodes of a body as name=value pairs.
+	 */
+	private static String describe(CommentBody body) {
+		StringBuilder description = new StringBuilder();
+		for (JAXBElement<?> node : body.getTextOrCodeOrLiteral()) {
+			description.append('[').append(node.getName().getLocalPart()).append('=');
+			Object value = node.getValue();
+			if (value instanceof Link) {
+				description.append(((Link) value).getText());
+			} else if (value instanceof CommentBody) {
+				description.append(describe((CommentBody) value));
+			} else if (value instanceof TagletOutput) {
+				description.append(((TagletOutput) value).getName()).append(':')
+						.append(((TagletOutput) value).getValue());
+			} else {
+				description.append(value);
+			}
+			description.append(']');
+		}
+		return description.toString();
+	}
+
+	/**
+	 * testing the nodes of structured comments
+	 */
+	@Test
+	public void testStructuredComments() throws Exception {
+		File sourceDirectory = createSourceDirectory("structured");
+		writeSource(sourceDirectory, "com.example.structured", "Base", "public interface Base {\n"
+				+ "  /** The limit. */\n" + "  int LIMIT = 3;\n" + "  /**\n" + "   * Runs {@code fast}.\n"
+				+ "   * @param count the count\n" + "   */\n" + "  void run(int count);\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.structured", "Impl", "/**\n"
+				+ " * Text {@literal <a>} {@link Base} {@linkplain Base base} {@value Base#LIMIT} {@metric hits}.\n"
+				+ " */\n" + "public class Impl implements Base {\n" + "  /**\n" + "   * {@inheritDoc} More.\n"
+				+ "   * @param count {@inheritDoc}, positive\n" + "   */\n" + "  public void run(int count) {}\n"
+				+ "}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.structured" }, new String[] { "-dryrun", "-structuredcomments" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		Class impl = findClass(packageNode, "Impl");
+		assertNull(impl.getComment());
+		assertEquals(describe(impl.getBody()), "[text=Text ][literal=<a>][text= ][link=Base][text= ][linkplain=base]"
+				+ "[text= ][value=3][text= ][taglet=@metric:<metric>hits</metric>][text=.]");
+
+		Method run = impl.getMethod().get(0);
+		assertNull(run.getComment());
+		assertEquals(describe(run.getBody()), "[inherited=[text=Runs ][code=fast][text=.]][text= More.]");
+		assertNull(run.getParam().get(0).getComment());
+		assertEquals(describe(run.getParam().get(0).getBody()), "[inherited=[text=the count]][text=, positive]");
+	}
+
+	/**
+	 * testing the bodies of deprecated types and members
+	 */
+	@Test
+	public void testDeprecated() throws Exception {
+		File sourceDirectory = createSourceDirectory("structured-deprecated");
+		writeSource(sourceDirectory, "com.example.structured", "Old", "/**\n * Old.\n"
+				+ " * @deprecated use {@code New}\n */\n@Deprecated\npublic class Old {\n"
+				+ "  /** @deprecated gone */\n  @Deprecated\n  public void run() {}\n}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.structured" }, new String[] { "-dryrun", "-structuredcomments" });
+		Class old = rootNode.getPackage().get(0).getClazz().get(0);
+
+		assertNull(old.getDeprecated());
+		assertEquals(describe(old.getDeprecatedBody()), "[text=use ][code=New]");
+		assertEquals(describe(old.getMethod().get(0).getDeprecatedBody()), "[text=gone]");
+
+		rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.structured" }, new String[] { "-dryrun" });
+		old = rootNode.getPackage().get(0).getClazz().get(0);
+		assertEquals(old.getDeprecated(), "use <code>New</code>");
+		assertNull(old.getDeprecatedBody());
+		assertEquals(old.getMethod().get(0).getDeprecated(), "gone");
+	}
+
+	/**
+	 * testing that no bodies are written without the option
+	 */
+	@Test
+	public void testStringComments() throws Exception {
+		File sourceDirectory = createSourceDirectory("structured-off");
+		writeSource(sourceDirectory, "com.example.structured", "Plain",
+				"/** Text {@code code}. */\npublic class Plain {}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.structured" }, new String[] { "-dryrun" });
+		Class plain = rootNode.getPackage().get(0).getClazz().get(0);
+
+		assertEquals(plain.getComment(), "Text <code>code</code>.");
+		assertNull(plain.getBody());
+	}
+}
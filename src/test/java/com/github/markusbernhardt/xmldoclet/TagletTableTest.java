@@ -0,0 +1,108 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the taglet dispatch table
+ */
+public class TagletTableTest extends AbstractTestParent {
+
+	private final static Logger log = LoggerFactory.getLogger(TagletTableTest.class);
+
+	/**
+	 * testing the lookup of every standard taglet
+	 */
+	@Test
+	public void testLookup() {
+		TagletTable table = new TagletTable(Arrays.asList(InlineTag.values()));
+
+		for (InlineTag taglet : InlineTag.values()) {
+			assertSame(table.get(new String(taglet.getName())), taglet);
+		}
+		assertNull(table.get(TagletTable.TEXT));
+		assertNull(table.get("@unknown"));
+		assertNull(table.get(""));
+	}
+
+	/**
+	 * testing that a taglet registered as a service renders its tag
+	 */
+	@Test
+	public void testServiceTaglet() throws Exception {
+		File sourceDirectory = createSourceDirectory("taglet");
+		writeSource(sourceDirectory, "com.example.taglet", "Counter",
+				"/** Counts {@metric requests} per {@code second}. */\npublic class Counter {}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.taglet" }, new String[] { "-dryrun" });
+		Class classNode = rootNode.getPackage().get(0).getClazz().get(0);
+
+		assertEquals(classNode.getComment(), "Counts <metric>requests</metric> per <code>second</code>.");
+	}
+
+	/**
+	 * testing the dispatch time against a hash map on a comment heavy mix of
+	 * inline tags
+	 */
+	@Test
+	public void testDispatchTime() {
+		Map<String, Taglet> map = new HashMap<String, Taglet>();
+		for (InlineTag taglet : InlineTag.values()) {
+			map.put(taglet.getName(), taglet);
+		}
+		TagletTable table = new TagletTable(Arrays.asList(InlineTag.values()));
+
+		// four in five inline tags are text, the others are spread over the standard tags
+		Random random = new Random(42);
+		String[] names = new String[100000];
+		for (int i = 0; i < names.length; i++) {
+			if (random.nextInt(5) > 0) {
+				names[i] = TagletTable.TEXT;
+			} else {
+				names[i] = new String(InlineTag.values()[random.nextInt(InlineTag.values().length)].getName());
+			}
+		}
+
+		long mapTime = Long.MAX_VALUE;
+		long tableTime = Long.MAX_VALUE;
+		int mapHits = 0;
+		int tableHits = 0;
+		for (int round = 0; round < 20; round++) {
+			long start = System.nanoTime();
+			mapHits = 0;
+			for (String name : names) {
+				if (map.get(name) != null) {
+					mapHits++;
+				}
+			}
+			mapTime = Math.min(mapTime, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			tableHits = 0;
+			for (String name : names) {
+				if (name != TagletTable.TEXT && table.get(name) != null) {
+					tableHits++;
+				}
+			}
+			tableTime = Math.min(tableTime, System.nanoTime() - start);
+		}
+
+		log.info("dispatch of " + names.length + " inline tags: hash map " + mapTime / 1000 + " us, table "
+				+ tableTime / 1000 + " us");
+		assertEquals(tableHits, mapHits);
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Field;
+import com.github.markusbernhardt.xmldoclet.xjc.Package;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the {@value} tag and constant field values
+ */
+public class ValueTest extends AbstractTestParent {
+
+	private static Class findClass(Package packageNode, String name) {
+		for (Class classNode : packageNode.getClazz()) {
+			if (classNode.getName().equals(name)) {
+				return classNode;
+			}
+		}
+		return null;
+	}
+
+	private static Field findField(Class classNode, String name) {
+		for (Field field : classNode.getField()) {
+			if (field.getName().equals(name)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * testing the forms of the {@value} tag and the default of constant fields
+	 */
+	@Test
+	public void testValue() throws Exception {
+		File sourceDirectory = createSourceDirectory("value");
+		writeSource(sourceDirectory, "com.example.value", "Limits", "public class Limits {\n"
+				+ "  /** The limit is {@value}. */\n" + "  public static final int LIMIT = 42;\n"
+				+ "  /** Named {@value #NAME}. */\n" + "  public static final String NAME = \"limits\";\n"
+				+ "  /** Not constant {@value}. */\n" + "  public static int counter;\n" + "}\n");
+		writeSource(sourceDirectory, "com.example.value", "Client", "/**\n"
+				+ " * Uses {@value com.example.value.Limits#LIMIT}, {@value Limits#NAME}\n"
+				+ " * and {@value java.lang.Integer#MAX_VALUE}{@value Limits#MISSING}.\n" + " */\n"
+				+ "public class Client {}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.value" }, new String[] { "-dryrun" });
+		Package packageNode = rootNode.getPackage().get(0);
+
+		Class limits = findClass(packageNode, "Limits");
+		assertEquals(findField(limits, "LIMIT").getComment(), "The limit is 42.");
+		assertEquals(findField(limits, "LIMIT").getDefault(), "42");
+		assertEquals(findField(limits, "NAME").getComment(), "Named \"limits\".");
+		assertEquals(findField(limits, "counter").getComment(), "Not constant .");
+		assertNull(findField(limits, "counter").getDefault());
+
+		assertEquals(findClass(packageNode, "Client").getComment(), "Uses 42, \"limits\"\n and 2147483647.");
+	}
+}
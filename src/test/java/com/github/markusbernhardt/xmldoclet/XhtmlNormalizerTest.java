@@ -0,0 +1,154 @@
+package com.github.markusbernhardt.xmldoclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Random;
+
+import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.text.html.parser.ParserDelegator;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+
+import com.github.markusbernhardt.xmldoclet.xjc.Class;
+import com.github.markusbernhardt.xmldoclet.xjc.Root;
+
+/**
+ * Unit test group for the XHTML normalizer of comments
+ */
+public class XhtmlNormalizerTest extends AbstractTestParent {
+
+	private final static Logger log = LoggerFactory.getLogger(XhtmlNormalizerTest.class);
+
+	private static String assertWellFormed(String xhtml) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new InputSource(new StringReader("<comment>" + xhtml + "</comment>"))).getDocumentElement()
+				.getTextContent();
+	}
+
+	/**
+	 * testing the repairs of common comment HTML
+	 */
+	@Test
+	public void testNormalize() throws Exception {
+		XhtmlNormalizer normalizer = new XhtmlNormalizer();
+
+		assertEquals(normalizer.normalize("First.<p>Second.<P>Third."), "First.<p>Second.</p><p>Third.</p>");
+		assertEquals(normalizer.normalize("a<br>b<BR/>c<hr>"), "a<br/>b<br/>c<hr/>");
+		assertEquals(normalizer.normalize("<ul><li>one<li>two</ul>"), "<ul><li>one</li><li>two</li></ul>");
+		assertEquals(normalizer.normalize("<table><tr><td>a<td>b<tr><td>c</table>"),
+				"<table><tr><td>a</td><td>b</td></tr><tr><td>c</td></tr></table>");
+		assertEquals(normalizer.normalize("<A HREF=foo.html TITLE='x' checked>x</a>"),
+				"<a href=\"foo.html\" title=\"x\" checked=\"checked\">x</a>");
+		assertEquals(normalizer.normalize("<img src=\"a&b\" alt=\"1\" alt=\"2\">"), "<img src=\"a&amp;b\" alt=\"1\"/>");
+		assertEquals(normalizer.normalize("a & b &amp; c &nbsp;&copy;&#169;&#xA9;&bogus; d"),
+				"a &amp; b &amp; c &#160;&#169;&#169;&#xA9;&amp;bogus; d");
+		assertEquals(normalizer.normalize("if (a < b && b > c)"), "if (a &lt; b &amp;&amp; b &gt; c)");
+		assertEquals(normalizer.normalize("<b>bold <i>both</b> none</i>"), "<b>bold <i>both</i></b> none");
+		assertEquals(normalizer.normalize("<!-- note --><!DOCTYPE html>text"), "text");
+		assertEquals(normalizer.normalize("<pre>code</pre><code><link href=\"x\" text=\"y\"/></code>"),
+				"<pre>code</pre><code><link href=\"x\" text=\"y\"/></code>");
+		assertEquals(normalizer.normalize("<dl><dt>a<dd>b<dt>c</dl>"), "<dl><dt>a</dt><dd>b</dd><dt>c</dt></dl>");
+		assertEquals(normalizer.normalize("unclosed <a href=\"x"), "unclosed &lt;a href=\"x");
+		assertEquals(normalizer.normalize("<a href=\"x\" title=\"a<b\">t</a>"),
+				"<a href=\"x\" title=\"a&lt;b\">t</a>");
+		assertEquals(normalizer.normalize("<a title='<i>' href=x>t</a>"),
+				"<a title=\"&lt;i>\" href=\"x\">t</a>");
+		assertEquals(normalizer.normalize(null), null);
+	}
+
+	/**
+	 * testing that the text of {@code} and {@literal} tags is kept as text
+	 * and not read as markup
+	 */
+	@Test
+	public void testInlineTagText() throws Exception {
+		File sourceDirectory = createSourceDirectory("xhtml");
+		writeSource(sourceDirectory, "com.example.xhtml", "Text", "/**\n"
+				+ " * A {@code List<String>} or a {@code Map<K, V>}, if {@literal a<b && c>d}.\n"
+				+ " */\npublic class Text {}\n");
+		Root rootNode = executeJavadoc(null, new String[] { sourceDirectory.getPath() }, null, null,
+				new String[] { "com.example.xhtml" }, new String[] { "-dryrun", "-xhtml" });
+		Class classNode = rootNode.getPackage().get(0).getClazz().get(0);
+
+		assertEquals(classNode.getComment(),
+				"A <code>List&lt;String&gt;</code> or a <code>Map&lt;K, V&gt;</code>, if a&lt;b &amp;&amp; c&gt;d.");
+		assertEquals(assertWellFormed(classNode.getComment()), "A List<String> or a Map<K, V>, if a<b && c>d.");
+	}
+
+	/**
+	 * testing that the output stays well-formed and bounded on random and
+	 * deeply nested input
+	 */
+	@Test
+	public void testWellFormed() throws Exception {
+		XhtmlNormalizer normalizer = new XhtmlNormalizer();
+		String[] pieces = { "<p>", "</p>", "<b>", "</b>", "<i>", "</I>", "<li>", "<ul>", "</ul>", "<br>", "&", "&lt;",
+				"<", ">", "<a href=x>", "</a>", "text ", "<!--", "-->", "<table>", "<td>", "<tr>", "</table>", "'", "\"",
+				"<img src='a\"b'>", "&#12;", "&#x41;", "\u000b", "<![CDATA[", "]]>", "<?x", "</>", "< p>", "<p/>", "<x:y>" };
+		Random random = new Random(7);
+		for (int round = 0; round < 2000; round++) {
+			StringBuilder html = new StringBuilder();
+			for (int i = random.nextInt(40); i > 0; i--) {
+				html.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String xhtml = normalizer.normalize(html.toString());
+			try {
+				assertWellFormed(xhtml.replace("<x:y>", "").replace("</x:y>", ""));
+			} catch (Exception e) {
+				throw new AssertionError(html + " -> " + xhtml + ": " + e.getMessage());
+			}
+		}
+
+		StringBuilder deep = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			deep.append("<div>");
+		}
+		for (int i = 0; i < 10000; i++) {
+			deep.append("</div>");
+		}
+		String xhtml = normalizer.normalize(deep.toString());
+		assertWellFormed(xhtml);
+		assertEquals(xhtml.length(), XhtmlNormalizer.MAX_DEPTH * "<div></div>".length());
+	}
+
+	/**
+	 * testing the time of the normalizer against a full HTML parser, as used by
+	 * the cleaners run over comments downstream
+	 */
+	@Test
+	public void testNormalizeTime() throws Exception {
+		StringBuilder comment = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			comment.append("Returns the <b>value</b> & the <i>key</i> of entry ").append(i)
+					.append(".<p>The map <code>m</code> is left unchanged.<br>See <a href=#x>x</a>.\n");
+			comment.append("<ul><li>first<li>second</ul>\n");
+		}
+		String html = comment.toString();
+		XhtmlNormalizer normalizer = new XhtmlNormalizer();
+		ParserDelegator parser = new ParserDelegator();
+		HTMLEditorKit.ParserCallback callback = new HTMLEditorKit.ParserCallback();
+
+		long normalizerTime = Long.MAX_VALUE;
+		long parserTime = Long.MAX_VALUE;
+		for (int round = 0; round < 30; round++) {
+			long start = System.nanoTime();
+			normalizer.normalize(html);
+			normalizerTime = Math.min(normalizerTime, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			parser.parse(new StringReader(html), callback, true);
+			parserTime = Math.min(parserTime, System.nanoTime() - start);
+		}
+
+		log.info("comment of " + html.length() + " chars: normalizer " + normalizerTime / 1000 + " us, HTML parser "
+				+ parserTime / 1000 + " us");
+		assertTrue(normalizerTime > 0);
+	}
+}